@@ -23,6 +23,7 @@
 package org.jboss.arquillian.container.appscale.remote;
 
 import org.jboss.arquillian.container.common.AppEngineDeploymentAppender;
+import org.jboss.arquillian.container.common.DeploymentTimingsObserver;
 import org.jboss.arquillian.container.spi.client.container.DeployableContainer;
 import org.jboss.arquillian.container.test.spi.client.deployment.AuxiliaryArchiveAppender;
 import org.jboss.arquillian.core.spi.LoadableExtension;
@@ -38,5 +39,6 @@ public class AppScaleExtension implements LoadableExtension {
     public void register(ExtensionBuilder builder) {
         builder.service(DeployableContainer.class, AppScaleRemoteContainer.class);
         builder.service(AuxiliaryArchiveAppender.class, AppEngineDeploymentAppender.class);
+        builder.observer(DeploymentTimingsObserver.class);
     }
 }
@@ -23,8 +23,9 @@
 
 package org.jboss.arquillian.container.appscale.remote;
 
+import org.jboss.arquillian.container.common.AppEngineCommonConfiguration;
+import org.jboss.arquillian.container.common.ExportFormat;
 import org.jboss.arquillian.container.spi.ConfigurationException;
-import org.jboss.arquillian.container.spi.client.container.ContainerConfiguration;
 import org.jboss.arquillian.container.spi.client.deployment.Validate;
 
 /**
@@ -32,7 +33,7 @@ import org.jboss.arquillian.container.spi.client.deployment.Validate;
  *
  * @author <a href="mailto:mlazar@redhat.com">Matej Lazar</a>
  */
-public class AppScaleRemoteConfiguration implements ContainerConfiguration {
+public class AppScaleRemoteConfiguration extends AppEngineCommonConfiguration {
     private static final String APPSCALE = "appscale.";
 
     private long uploadTimeout = 30 * 1000L;
@@ -51,10 +52,21 @@ public class AppScaleRemoteConfiguration implements ContainerConfiguration {
      */
     private String host = System.getProperty(APPSCALE + "host");
 
+    /**
+     * Upload format, directory, zip or tar.gz.
+     * The archive formats are streamed straight to a single file.
+     */
+    private String exportFormat = System.getProperty(APPSCALE + "export.format");
+
     @Override
     public void validate() throws ConfigurationException {
         Validate.notNullOrEmpty(email, "The e-mail address to use as the app's admin must be specified.");
         Validate.notNullOrEmpty(host, "Host running AppScale must be specified.");
+        try {
+            ExportFormat.parse(exportFormat);
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException("Unknown export format: " + exportFormat);
+        }
     }
 
     public String getEmail() {
@@ -104,4 +116,12 @@ public class AppScaleRemoteConfiguration implements ContainerConfiguration {
     public void setUndeployTimeout(long undeployTimeout) {
         this.undeployTimeout = undeployTimeout;
     }
+
+    public String getExportFormat() {
+        return exportFormat;
+    }
+
+    public void setExportFormat(String exportFormat) {
+        this.exportFormat = exportFormat;
+    }
 }
@@ -22,14 +22,8 @@
 
 package org.jboss.arquillian.container.appscale.remote;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -39,7 +33,10 @@ import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.jboss.arquillian.container.common.AppEngineCommonConfiguration;
 import org.jboss.arquillian.container.common.AppEngineCommonContainer;
+import org.jboss.arquillian.container.common.ExportFormat;
+import org.jboss.arquillian.container.common.ProcessPump;
 import org.jboss.arquillian.container.spi.client.container.DeploymentException;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
 import org.jboss.shrinkwrap.api.Archive;
@@ -65,6 +62,7 @@ import org.jboss.shrinkwrap.api.ShrinkWrap;
 public class AppScaleRemoteContainer extends AppEngineCommonContainer<AppScaleRemoteConfiguration> {
     protected final Logger log = Logger.getLogger(getClass().getName());
     protected static final Pattern hostPortPattern = Pattern.compile("(http://[0-9\\.\\:]+)");
+    private static final int OUTPUT_TAIL = 20; // lines in a timeout message
 
     private AppScaleRemoteConfiguration configuration;
     private DeploymentInfo deploymentInfo;
@@ -79,11 +77,17 @@ public class AppScaleRemoteContainer extends AppEngineCommonContainer<AppScaleRe
         this.configuration = configuration;
     }
 
+    @Override
+    protected AppEngineCommonConfiguration getCommonConfiguration() {
+        return configuration;
+    }
+
     @Override
     protected File export(Archive<?> archive) throws Exception {
         Archive<GenericArchive> appscaleArchive = ShrinkWrap.create(GenericArchive.class);
         appscaleArchive.merge(archive, "war");
-        return super.export(appscaleArchive);
+        // appscale-upload-app takes a directory, .zip or .tar.gz
+        return export(appscaleArchive, getTempRoot(), ExportFormat.parse(configuration.getExportFormat()));
     }
 
     @Override
@@ -96,15 +100,21 @@ public class AppScaleRemoteContainer extends AppEngineCommonContainer<AppScaleRe
 
         List<String> deployCmd = ssh("/usr/local/appscale-tools/bin/appscale-upload-app --email " + configuration.getEmail() + " --file /root/" + getAppLocation().getName());
 
-        List<String> responses = new ArrayList<String>();
+        final DeploymentInfo info = new DeploymentInfo();
         try {
             runCmd(uploadDeploymentCmd, "upload", "./", null, configuration.getUploadTimeout());
-            runCmd(deployCmd, "deploy", "./", responses, configuration.getDeployTimeout());
+            runCmd(deployCmd, "deploy", "./", new ProcessPump.LineListener() {
+                public void line(String line, boolean stderr) {
+                    if (stderr == false) {
+                        parseResponse(info, line);
+                    }
+                }
+            }, configuration.getDeployTimeout());
         } catch (InterruptedException e) {
             throw new DeploymentException("Cannot deploy to AppScale.", e);
         }
 
-        deploymentInfo = parseUrlFromResponse(responses);
+        deploymentInfo = info;
 
         if (deploymentInfo.isValid() == false) {
             throw new DeploymentException("Could not deploy, invalid reponse: " + deploymentInfo);
@@ -130,7 +140,7 @@ public class AppScaleRemoteContainer extends AppEngineCommonContainer<AppScaleRe
         return Arrays.asList("ssh", "root@" + configuration.getHost(), last);
     }
 
-    void runCmd(List<String> command, String processName, String workingDirectory, List<String> responses, long timeout) throws InterruptedException {
+    void runCmd(List<String> command, String processName, String workingDirectory, ProcessPump.LineListener listener, long timeout) throws InterruptedException, DeploymentException {
         log.log(Level.FINE, String.format("Process name='%s' command='%s' workingDirectory='%s'", processName, command, workingDirectory));
         final ProcessBuilder builder = new ProcessBuilder(command);
         builder.directory(new File(workingDirectory));
@@ -142,81 +152,32 @@ public class AppScaleRemoteContainer extends AppEngineCommonContainer<AppScaleRe
             return;
         }
 
-        final InputStream stderr = process.getErrorStream();
-        final InputStream stdout = process.getInputStream();
-
-        final Thread stderrThread = new Thread(new ReadTask(stderr, System.err, processName, null));
-        stderrThread.setName(String.format("stderr for %s", processName));
-        stderrThread.start();
-        final Thread stdoutThread = new Thread(new ReadTask(stdout, System.out, processName, responses));
-        stdoutThread.setName(String.format("stdout for %s", processName));
-        stdoutThread.start();
-
-        stdoutThread.join(timeout);
-        stderrThread.join(timeout);
+        final ProcessPump.Handle handle = ProcessPump.getInstance().pump(process, processName, listener);
+        if (handle.await(timeout) == false) {
+            handle.close();
+            process.destroy();
+            final List<String> lines = handle.getLines();
+            final List<String> tail = lines.subList(Math.max(lines.size() - OUTPUT_TAIL, 0), lines.size());
+            throw new DeploymentException(String.format("Process '%s' timed out after %sms, last output: %s", processName, timeout, tail));
+        }
     }
 
-    private final class ReadTask implements Runnable {
-        private final InputStream source;
-        private final PrintStream target;
-        private final String processName;
-        private final List<String> response;
-
-        private ReadTask(final InputStream source, final PrintStream target, String processName, List<String> response) {
-            this.source = source;
-            this.target = target;
-            this.processName = processName;
-            this.response = response;
-        }
+    void parseResponse(DeploymentInfo deploymentInfo, String response) {
+        Matcher hostPortMatcher = hostPortPattern.matcher(response);
+        if (hostPortMatcher.find()) {
+            String url = hostPortMatcher.group();
+            URI uri = URI.create(url);
+            deploymentInfo.host = uri.getHost();
+            deploymentInfo.port = uri.getPort();
 
-        @Override
-        public void run() {
-            final InputStream source = this.source;
-            try {
-                final BufferedReader reader = new BufferedReader(new InputStreamReader(new BufferedInputStream(source)));
-                final OutputStreamWriter writer = new OutputStreamWriter(target);
-                String s;
-                while ((s = reader.readLine()) != null) {
-                    synchronized (target) {
-                        if (response != null) response.add(s);
-                        writer.write('[');
-                        writer.write(processName);
-                        writer.write("] ");
-                        writer.write(s);
-                        writer.write('\n');
-                        writer.flush();
-                    }
-                }
-                source.close();
-            } catch (IOException e) {
-                log.log(Level.SEVERE, "Cannot start read task.", e);
-            } finally {
-                safeClose(source);
-            }
         }
-    }
-
-    DeploymentInfo parseUrlFromResponse(List<String> responses) {
-        DeploymentInfo deploymentInfo = new DeploymentInfo();
-
-        for (String response : responses) {
-            Matcher hostPortMatcher = hostPortPattern.matcher(response);
-            if (hostPortMatcher.find()) {
-                String url = hostPortMatcher.group();
-                URI uri = URI.create(url);
-                deploymentInfo.host = uri.getHost();
-                deploymentInfo.port = uri.getPort();
-
-            }
-            if (response.startsWith("Uploading")) {
-                /* Expected responses are:
-		 * "Uploading new version of app {appName}"
-		 * "Uploading initial version of app {appName}"
-		 */
-	        deploymentInfo.appName = response.split("app ")[1];
-            }
+        if (response.startsWith("Uploading")) {
+            /* Expected responses are:
+             * "Uploading new version of app {appName}"
+             * "Uploading initial version of app {appName}"
+             */
+            deploymentInfo.appName = response.split("app ")[1];
         }
-        return deploymentInfo;
     }
 
     static class DeploymentInfo {
@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AppEngineCommonContainer.deleteRecursively vs AppLocationReaper's walkFileTree delete,
+ * on a fresh directory tree per invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DeleteRecursivelyBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int files;
+
+    @Param({"20"})
+    public int width;
+
+    private File root;
+    private File tree;
+
+    @Setup
+    public void setup() throws Exception {
+        root = SyntheticArchives.tempDirectory("delete-benchmark");
+    }
+
+    @Setup(Level.Invocation)
+    public void createTree() throws Exception {
+        tree = new File(root, "tree");
+        SyntheticArchives.tree(tree, files, width);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        AppEngineCommonContainer.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public void deleteRecursively() throws Exception {
+        AppEngineCommonContainer.deleteRecursively(tree);
+    }
+
+    @Benchmark
+    public void walkFileTree() throws Exception {
+        AppLocationReaper.deleteTree(tree.toPath());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FixedExplodedExporter.export, sequential vs parallel vs cached.
+ * <p/>
+ * Every invocation exports into the same directory, so the cached mode
+ * measures the repeated deployment of an unchanged archive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExportBenchmark {
+    @Param({"100", "1000"})
+    public int classes;
+
+    @Param({"10"})
+    public int libraries;
+
+    /**
+     * 1 exports a plain .war, anything above an .ear.
+     */
+    @Param({"1", "4"})
+    public int modules;
+
+    @Param({"sequential", "parallel", "cached"})
+    public String mode;
+
+    private Archive<?> archive;
+    private File root;
+
+    @Setup
+    public void setup() throws Exception {
+        SyntheticArchives.quiet();
+        archive = (modules > 1) ? SyntheticArchives.ear(modules, classes, libraries) : SyntheticArchives.war("benchmark", null, classes, libraries);
+        root = SyntheticArchives.tempDirectory("export-benchmark");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        // also removes the export index, it lives next to the exported archive
+        AppEngineCommonContainer.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public File export() {
+        final FixedExplodedExporter exporter = new FixedExplodedExporter(archive, root);
+        exporter.setParallelism("parallel".equals(mode) ? Runtime.getRuntime().availableProcessors() : 1);
+        exporter.setCached("cached".equals(mode));
+        return exporter.export();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.arquillian.protocol.modules.ModuleMetaData;
+import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AppEngineCommonContainer.extractModules on an .ear.
+ * <p/>
+ * Cold uses a new archive per invocation, so every descriptor gets parsed,
+ * warm reuses the archive, as the containers do within a single deployment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExtractModulesBenchmark {
+    @Param({"1", "5", "20"})
+    public int modules;
+
+    @Param({"10"})
+    public int classes;
+
+    private EnterpriseArchive ear;
+
+    @State(Scope.Thread)
+    public static class Cold {
+        EnterpriseArchive ear;
+
+        @Setup(Level.Invocation)
+        public void setup(ExtractModulesBenchmark benchmark) {
+            ear = SyntheticArchives.ear(benchmark.modules, benchmark.classes, 0);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        ear = SyntheticArchives.ear(modules, classes, 0);
+    }
+
+    @Benchmark
+    public List<ModuleMetaData> cold(Cold cold) {
+        return AppEngineCommonContainer.extractModules("localhost", 8080, cold.ear);
+    }
+
+    @Benchmark
+    public List<ModuleMetaData> warm() {
+        return AppEngineCommonContainer.extractModules("localhost", 8080, ear);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.arquillian.container.spi.client.deployment.DeploymentDescription;
+import org.jboss.arquillian.container.test.spi.TestDeployment;
+import org.jboss.arquillian.container.test.spi.client.deployment.ProtocolArchiveProcessor;
+import org.jboss.arquillian.protocol.modules.ModulesProtocolDeploymentPackager;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ModulesProtocolDeploymentPackager.generateDeployment, which merges the
+ * servlet protocol into every .war; the packager modifies the archive,
+ * so each invocation gets a new one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GenerateDeploymentBenchmark {
+    /**
+     * 1 packages a plain .war, anything above an .ear.
+     */
+    @Param({"1", "5"})
+    public int modules;
+
+    @Param({"100"})
+    public int classes;
+
+    /**
+     * Number of auxiliary archives, e.g. Arquillian's own.
+     */
+    @Param({"5"})
+    public int libraries;
+
+    private final ModulesProtocolDeploymentPackager packager = new ModulesProtocolDeploymentPackager();
+    private final Collection<ProtocolArchiveProcessor> processors = Collections.emptyList();
+    private TestDeployment deployment;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        final Archive<?> archive = (modules > 1) ? SyntheticArchives.ear(modules, classes, 0) : SyntheticArchives.war("benchmark", null, classes, 0);
+        final List<Archive<?>> auxiliary = new ArrayList<Archive<?>>();
+        for (int i = 0; i < libraries; i++) {
+            auxiliary.add(ShrinkWrap.create(JavaArchive.class, "auxiliary" + i + ".jar").addClass(getClass()));
+        }
+        deployment = new TestDeployment(new DeploymentDescription("benchmark", archive), archive, auxiliary);
+    }
+
+    @Benchmark
+    public Archive<?> generateDeployment() {
+        return packager.generateDeployment(deployment, processors);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.shrinkwrap.api.Node;
+
+/**
+ * The original byte-by-byte ParseUtils.parseTokens, kept as benchmark baseline.
+ */
+final class LegacyParseUtils {
+    private LegacyParseUtils() {
+    }
+
+    static Map<String, String> parseTokens(Node xml, final String... tokens) throws Exception {
+        final Set<String> set = new LinkedHashSet<String>(Arrays.asList(tokens));
+        return parseTokens(xml, set);
+    }
+
+    private static Map<String, String> parseTokens(Node xml, final Set<String> tokens) throws Exception {
+        final Map<String, String> results = new HashMap<String, String>();
+        InputStream is = xml.getAsset().openStream();
+        try {
+            StringBuilder builder = new StringBuilder();
+            int x;
+            String token = null;
+            StringBuilder tokenBuilder = new StringBuilder();
+            while ((x = is.read()) != -1) {
+                char ch = (char) x;
+                if (token != null) {
+                    if (ch == '<') {
+                        results.put(token, tokenBuilder.toString());
+                        if (tokens.isEmpty()) {
+                            break;
+                        } else {
+                            token = null;
+                            tokenBuilder.setLength(0); // reset builder
+                        }
+                    } else {
+                        tokenBuilder.append(ch);
+                    }
+                } else {
+                    builder.append(ch);
+                }
+                // check if we hit any token
+                if (token == null) {
+                    for (String t : tokens) {
+                        if (builder.toString().endsWith(t)) {
+                            token = t;
+                            break;
+                        }
+                    }
+                    if (token != null) {
+                        tokens.remove(token);
+                    }
+                }
+            }
+            return results;
+        } finally {
+            ParseUtils.safeClose(is);
+        }
+    }
+}
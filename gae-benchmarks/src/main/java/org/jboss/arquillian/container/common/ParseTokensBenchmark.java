@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ParseUtils.parseTokens against the original byte-by-byte scanner,
+ * on an appengine-web.xml with a growing static files section.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseTokensBenchmark {
+    @Param({"10", "1000", "10000"})
+    public int includes;
+
+    private Node appEngineWebXml;
+
+    @Setup
+    public void setup() {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        xml.append("<appengine-web-app xmlns=\"http://appengine.google.com/ns/1.0\">\n");
+        xml.append("    <application>arquillian-gae</application>\n");
+        xml.append("    <static-files>\n");
+        for (int i = 0; i < includes; i++) {
+            xml.append("        <include path=\"/static/resource-").append(i).append(".png\" expiration=\"1d\"/>\n");
+        }
+        xml.append("    </static-files>\n");
+        // tokens at the end, so both scanners go through the whole file
+        xml.append("    <version>1</version>\n");
+        xml.append("    <threadsafe>true</threadsafe>\n");
+        xml.append("    <module>benchmark</module>\n");
+        xml.append("</appengine-web-app>\n");
+
+        WebArchive war = ShrinkWrap.create(WebArchive.class, "benchmark.war");
+        war.addAsWebInfResource(new StringAsset(xml.toString()), "appengine-web.xml");
+        appEngineWebXml = war.get(ParseUtils.APPENGINE_WEB_XML);
+    }
+
+    @Benchmark
+    public Map<String, String> streaming() throws Exception {
+        return ParseUtils.parseTokens(appEngineWebXml, ParseUtils.MODULE, ParseUtils.VERSION, ParseUtils.THREADSAFE);
+    }
+
+    @Benchmark
+    public Map<String, String> legacy() throws Exception {
+        return LegacyParseUtils.parseTokens(appEngineWebXml, ParseUtils.MODULE, ParseUtils.VERSION, ParseUtils.THREADSAFE);
+    }
+}
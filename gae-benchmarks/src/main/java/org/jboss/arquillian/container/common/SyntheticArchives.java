@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+
+/**
+ * Synthetic deployments of configurable size.
+ * <p/>
+ * Classes are random content of a typical class file size, libraries are jars
+ * holding the same number of entries. Content is seeded, so runs are comparable.
+ */
+final class SyntheticArchives {
+    static final int CLASS_SIZE = 2048;
+    static final int LIBRARY_ENTRIES = 50;
+
+    // keep a strong reference, so the level sticks
+    private static final Logger ROOT = Logger.getLogger("org.jboss.arquillian");
+
+    private SyntheticArchives() {
+    }
+
+    /**
+     * Silence per export / per deployment info logging, it would dominate the measurement.
+     */
+    static void quiet() {
+        ROOT.setLevel(Level.WARNING);
+    }
+
+    /**
+     * Create web archive.
+     *
+     * @param name      the archive name, without .war
+     * @param module    the module name, null for default module
+     * @param classes   number of classes
+     * @param libraries number of libraries
+     * @return new web archive
+     */
+    static WebArchive war(String name, String module, int classes, int libraries) {
+        final Random random = new Random(name.hashCode());
+        final WebArchive war = ShrinkWrap.create(WebArchive.class, name + ".war");
+        war.addAsWebInfResource(new StringAsset(appEngineWebXml(module)), "appengine-web.xml");
+        war.setWebXML(new StringAsset(webXml()));
+        for (int i = 0; i < classes; i++) {
+            war.add(new ByteArrayAsset(bytes(random, CLASS_SIZE)), String.format("WEB-INF/classes/org/acme/%s/p%s/Class%s.class", name, i % 10, i));
+        }
+        for (int i = 0; i < libraries; i++) {
+            war.addAsLibrary(jar(name + "-lib" + i, random));
+        }
+        return war;
+    }
+
+    /**
+     * Create enterprise archive, first module is the default one.
+     *
+     * @param modules   number of web modules
+     * @param classes   number of classes per module
+     * @param libraries number of shared libraries
+     * @return new enterprise archive
+     */
+    static EnterpriseArchive ear(int modules, int classes, int libraries) {
+        final Random random = new Random(modules);
+        final EnterpriseArchive ear = ShrinkWrap.create(EnterpriseArchive.class, "benchmark.ear");
+        final StringBuilder applicationXml = new StringBuilder();
+        applicationXml.append("<application xmlns=\"http://java.sun.com/xml/ns/javaee\" version=\"5\">\n");
+        applicationXml.append("    <display-name>benchmark</display-name>\n");
+        for (int m = 0; m < modules; m++) {
+            final String name = "module" + m;
+            ear.addAsModule(war(name, (m == 0) ? null : name, classes, 0));
+            applicationXml.append("    <module><web><web-uri>").append(name).append(".war</web-uri><context-root>").append(name).append("</context-root></web></module>\n");
+        }
+        applicationXml.append("    <library-directory>lib</library-directory>\n");
+        applicationXml.append("</application>\n");
+        ear.setApplicationXML(new StringAsset(applicationXml.toString()));
+        ear.addAsApplicationResource(new StringAsset("<appengine-application xmlns=\"http://appengine.google.com/ns/1.0\"><application>benchmark</application></appengine-application>"), "appengine-application.xml");
+        for (int i = 0; i < libraries; i++) {
+            ear.addAsLibrary(jar("shared" + i, random));
+        }
+        return ear;
+    }
+
+    /**
+     * Create a directory tree on disk.
+     *
+     * @param root  the root, created if missing
+     * @param files number of files
+     * @param width number of files per directory, directories nest by the same width
+     * @throws IOException for any I/O error
+     */
+    static void tree(File root, int files, int width) throws IOException {
+        final byte[] content = bytes(new Random(files), CLASS_SIZE);
+        for (int i = 0; i < files; i++) {
+            File dir = root;
+            for (int n = i / width; n > 0; n /= width) {
+                dir = new File(dir, "d" + (n % width));
+            }
+            if (dir.mkdirs() == false && dir.isDirectory() == false) {
+                throw new IOException("Cannot create " + dir);
+            }
+            Files.write(new File(dir, "f" + i + ".bin").toPath(), content);
+        }
+    }
+
+    static File tempDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    private static JavaArchive jar(String name, Random random) {
+        final JavaArchive jar = ShrinkWrap.create(JavaArchive.class, name + ".jar");
+        for (int i = 0; i < LIBRARY_ENTRIES; i++) {
+            jar.add(new ByteArrayAsset(bytes(random, CLASS_SIZE)), String.format("org/acme/%s/Class%s.class", name, i));
+        }
+        return jar;
+    }
+
+    private static byte[] bytes(Random random, int size) {
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String appEngineWebXml(String module) {
+        final StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        xml.append("<appengine-web-app xmlns=\"http://appengine.google.com/ns/1.0\">\n");
+        xml.append("    <application>benchmark</application>\n");
+        if (module != null) {
+            xml.append("    <module>").append(module).append("</module>\n");
+        }
+        xml.append("    <version>1</version>\n");
+        xml.append("    <threadsafe>true</threadsafe>\n");
+        xml.append("</appengine-web-app>\n");
+        return xml.toString();
+    }
+
+    private static String webXml() {
+        return "<web-app xmlns=\"http://java.sun.com/xml/ns/javaee\" version=\"2.5\"></web-app>";
+    }
+}
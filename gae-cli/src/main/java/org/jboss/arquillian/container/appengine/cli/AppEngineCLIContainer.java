@@ -24,13 +24,21 @@
 package org.jboss.arquillian.container.appengine.cli;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.jboss.arquillian.container.common.AppEngineCommonContainer;
+import org.jboss.arquillian.container.common.DeploymentPhase;
 import org.jboss.arquillian.container.spi.client.container.ContainerConfiguration;
+import org.jboss.arquillian.container.spi.client.container.LifecycleException;
 
 /**
  * AppEngine CLI container.
@@ -38,28 +46,169 @@ import org.jboss.arquillian.container.spi.client.container.ContainerConfiguratio
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public abstract class AppEngineCLIContainer<T extends ContainerConfiguration> extends AppEngineCommonContainer<T> {
+    private static final String[] READY_MARKERS = {"Dev App Server is now running"};
+
     private Thread appEngineThread;
+    private OutputWatcher readySignal;
+    private URLClassLoader sdkLoader;
 
     protected void invokeAppEngine(String sdkDir, String appEngineClass, final Object args) throws Exception {
         invokeAppEngine(null, sdkDir, appEngineClass, args);
     }
 
     protected void invokeAppEngine(ThreadGroup threads, String sdkDir, String appEngineClass, final Object args) throws Exception {
+        final Method main = loadMain(sdkDir, appEngineClass);
+
+        if (threads == null) {
+            // own group, so its output can be told apart
+            threads = new ThreadGroup("AppEngine: " + getClass().getSimpleName());
+        }
+        closeReadySignal();
+        final String[] markers = getReadyMarkers();
+        if (markers.length > 0) {
+            readySignal = OutputWatcher.watch(threads, markers);
+        }
+
+        Runnable runnable = createRunnable(threads, main, args);
+        appEngineThread = new Thread(threads, runnable, "AppEngine thread: " + getClass().getSimpleName());
+        appEngineThread.start();
+    }
+
+    private Method loadMain(String sdkDir, String appEngineClass) throws Exception {
         File lib = new File(sdkDir, "lib");
         File tools = new File(lib, "appengine-tools-api.jar");
         if (tools.exists() == false)
             throw new IllegalArgumentException("No AppEngine tools jar: " + tools);
 
-        URL url = tools.toURI().toURL();
-        URL[] urls = new URL[]{url};
-        ClassLoader cl = new URLClassLoader(urls);
-        Class<?> kickStartClass = cl.loadClass(appEngineClass);
-        final Method main = kickStartClass.getMethod("main", String[].class);
+        final long start = System.nanoTime();
+        try {
+            ClassLoader cl = getSdkLoader(tools);
+            Class<?> kickStartClass = cl.loadClass(appEngineClass);
+            return kickStartClass.getMethod("main", String[].class);
+        } finally {
+            recordPhase(DeploymentPhase.CLASS_LOADING, start);
+        }
+    }
 
-        Runnable runnable = createRunnable(threads, main, args);
-        appEngineThread = new Thread(threads, runnable, "AppEngine thread: " + getClass().getSimpleName());
-        appEngineThread.start();
+    /**
+     * Run AppEngine main in its own thread group and wait for it.
+     * Unlike invokeAppEngine, this doesn't replace the tracked AppEngine thread,
+     * so it can run next to a deployment.
+     *
+     * @param sdkDir         the SDK dir
+     * @param appEngineClass the main class
+     * @param args           the arguments
+     * @param timeout        the timeout, in millis
+     * @throws TimeoutException if main is still running after the timeout
+     * @throws Exception        for any error thrown by main
+     */
+    protected void runAppEngine(String sdkDir, String appEngineClass, Object args, long timeout) throws Exception {
+        final Method main = loadMain(sdkDir, appEngineClass);
+        final ThreadGroup threads = new ThreadGroup("AppEngine run: " + appEngineClass);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread thread = new Thread(threads, createRunnable(threads, main, args), "AppEngine run: " + getClass().getSimpleName());
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            public void uncaughtException(Thread t, Throwable e) {
+                failure.set(e);
+            }
+        });
+        thread.start();
+        thread.join(timeout);
+        if (thread.isAlive()) {
+            thread.interrupt();
+            throw new TimeoutException(String.format("%s still running after %sms", appEngineClass, timeout));
+        }
+        final Throwable t = failure.get();
+        if (t instanceof Exception) {
+            throw (Exception) t;
+        } else if (t != null) {
+            throw new ExecutionException(t);
+        }
+    }
+
+    private synchronized ClassLoader getSdkLoader(File tools) throws IOException {
+        final URL url = tools.toURI().toURL();
+        if (sdkLoader != null && Arrays.asList(sdkLoader.getURLs()).contains(url) == false) {
+            releaseSdkLoader(); // different SDK
+        }
+        if (sdkLoader == null) {
+            sdkLoader = SdkClassLoaders.acquire(tools);
+        }
+        return sdkLoader;
+    }
+
+    private synchronized void releaseSdkLoader() {
+        if (sdkLoader != null) {
+            SdkClassLoaders.release(sdkLoader);
+            sdkLoader = null;
+        }
+    }
+
+    @Override
+    public void stop() throws LifecycleException {
+        try {
+            super.stop();
+        } finally {
+            releaseSdkLoader();
+        }
+    }
+
+    /**
+     * Output lines which signal the server is up, so readiness probing doesn't wait for the next backoff.
+     *
+     * @return the markers, empty to disable
+     */
+    protected String[] getReadyMarkers() {
+        return READY_MARKERS;
+    }
 
+    /**
+     * Is the AppEngine main started by invokeAppEngine still running.
+     *
+     * @return true if running, false otherwise
+     */
+    protected boolean isAppEngineRunning() {
+        final Thread thread = appEngineThread;
+        return thread != null && thread.isAlive();
+    }
+
+    /**
+     * Trigger a reload of the running server and wait for a marker in its output.
+     * Only output written after the watch started counts, so an earlier reload can't be mistaken for this one.
+     *
+     * @param trigger triggers the reload
+     * @param markers output which signals the reload
+     * @param timeout the timeout, in millis
+     * @return true if a marker was seen, false on timeout or if the AppEngine main is not running
+     * @throws Exception for any error thrown by the trigger
+     */
+    protected boolean awaitReload(Callable<?> trigger, String[] markers, long timeout) throws Exception {
+        final Thread thread = appEngineThread;
+        final ThreadGroup threads = (thread != null) ? thread.getThreadGroup() : null;
+        if (threads == null || markers.length == 0) {
+            return false; // not running
+        }
+        final OutputWatcher watcher = OutputWatcher.watch(threads, markers);
+        try {
+            trigger.call();
+            final long deadline = System.currentTimeMillis() + timeout;
+            while (watcher.await(Math.min(Math.max(deadline - System.currentTimeMillis(), 0), 1000L)) == false) {
+                if (isAppEngineRunning() == false || System.currentTimeMillis() >= deadline) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            watcher.close();
+        }
+    }
+
+    private void closeReadySignal() {
+        if (readySignal != null) {
+            readySignal.close();
+            readySignal = null;
+        }
     }
 
     protected Runnable createRunnable(final ThreadGroup threads, final Method main, final Object args) {
@@ -81,22 +230,22 @@ public abstract class AppEngineCLIContainer<T extends ContainerConfiguration> ex
         final URL server = new URL(serverURL);
         log.info("Pinging server url: " + serverURL);
 
-        long timeout = startupTimeout * 1000;
-        while (timeout > 0) {
-            Thread.sleep(checkPeriod);
-            try {
-                server.openStream();
-                break;
-            } catch (Throwable ignored) {
-                timeout -= checkPeriod;
-            }
+        final long start = System.nanoTime();
+        try {
+            // checkPeriod is the max backoff now, the first probe is immediate
+            final ReadinessProbe probe = new ReadinessProbe(server, startupTimeout * 1000, checkPeriod);
+            probe.setSignal(readySignal);
+            final int probes = probe.await();
+            log.info(String.format("Server url %s is ready after %s probes.", serverURL, probes));
+        } finally {
+            closeReadySignal();
+            recordPhase(DeploymentPhase.READINESS, start);
         }
-        if (timeout <= 0)
-            throw new IllegalStateException("Cannot connect to managed AppEngine, timed out.");
     }
 
     @Override
     protected void shutdownServer() {
+        closeReadySignal();
         if (appEngineThread != null) {
             appEngineThread.interrupt();
             appEngineThread = null;
@@ -0,0 +1,178 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches System.out and System.err output of a thread group for a marker, e.g. "server is running".
+ * <p/>
+ * A tee stream is installed while there are active watchers, output itself is passed through unchanged.
+ */
+final class OutputWatcher {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int TAIL = 256;
+
+    private static final List<OutputWatcher> watchers = new CopyOnWriteArrayList<OutputWatcher>();
+    private static PrintStream originalOut;
+    private static PrintStream originalErr;
+    private static PrintStream teeOut;
+    private static PrintStream teeErr;
+
+    private final ThreadGroup threads;
+    private final String[] markers;
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final StringBuilder tail = new StringBuilder();
+
+    private OutputWatcher(ThreadGroup threads, String[] markers) {
+        this.threads = threads;
+        this.markers = markers;
+    }
+
+    /**
+     * Start watching output written by the thread group.
+     *
+     * @param threads the thread group
+     * @param markers the markers, any one of them signals
+     * @return new watcher
+     */
+    static OutputWatcher watch(ThreadGroup threads, String... markers) {
+        final OutputWatcher watcher = new OutputWatcher(threads, markers);
+        synchronized (OutputWatcher.class) {
+            if (watchers.isEmpty()) {
+                install();
+            }
+            watchers.add(watcher);
+        }
+        return watcher;
+    }
+
+    private static void install() {
+        originalOut = System.out;
+        originalErr = System.err;
+        teeOut = new PrintStream(new TeeOutputStream(originalOut), true);
+        teeErr = new PrintStream(new TeeOutputStream(originalErr), true);
+        System.setOut(teeOut);
+        System.setErr(teeErr);
+    }
+
+    private static void uninstall() {
+        // only restore if nobody replaced them meanwhile
+        if (System.out == teeOut) {
+            System.setOut(originalOut);
+        }
+        if (System.err == teeErr) {
+            System.setErr(originalErr);
+        }
+        originalOut = originalErr = teeOut = teeErr = null;
+    }
+
+    /**
+     * Wait for the marker.
+     *
+     * @param millis max wait
+     * @return true if seen
+     * @throws InterruptedException if interrupted
+     */
+    boolean await(long millis) throws InterruptedException {
+        return latch.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    boolean isSignaled() {
+        return latch.getCount() == 0;
+    }
+
+    /**
+     * Stop watching.
+     */
+    void close() {
+        synchronized (OutputWatcher.class) {
+            if (watchers.remove(this) && watchers.isEmpty()) {
+                uninstall();
+            }
+        }
+    }
+
+    private boolean isWatchedThread() {
+        return threads.parentOf(Thread.currentThread().getThreadGroup());
+    }
+
+    private synchronized void feed(byte[] bytes, int off, int len) {
+        if (isSignaled()) {
+            return;
+        }
+        tail.append(new String(bytes, off, len, ASCII));
+        for (String marker : markers) {
+            if (tail.indexOf(marker) >= 0) {
+                latch.countDown();
+                tail.setLength(0);
+                return;
+            }
+        }
+        // a marker can be split across writes
+        if (tail.length() > TAIL) {
+            tail.delete(0, tail.length() - TAIL);
+        }
+    }
+
+    private static class TeeOutputStream extends OutputStream {
+        private final PrintStream out;
+
+        private TeeOutputStream(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            scan(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            scan(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        private static void scan(byte[] b, int off, int len) {
+            for (OutputWatcher watcher : watchers) {
+                if (watcher.isWatchedThread()) {
+                    watcher.feed(b, off, len);
+                }
+            }
+        }
+    }
+}
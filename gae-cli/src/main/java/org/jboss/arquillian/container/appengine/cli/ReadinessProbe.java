@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Waits for a server url to answer.
+ * <p/>
+ * Probes right away, then backs off exponentially, with jitter, up to the max delay.
+ * Probes are HEAD requests with connect and read timeouts, falling back to GET if HEAD is not allowed;
+ * streams are fully closed, so the keep-alive connection is reused.
+ * An optional output watcher cuts the wait short once the server reports it's running.
+ */
+class ReadinessProbe {
+    private static final Logger log = Logger.getLogger(ReadinessProbe.class.getName());
+
+    static final long INITIAL_DELAY = 50L;
+    static final int PROBE_TIMEOUT = 5000;
+
+    private final URL url;
+    private final long timeout;
+    private final long maxDelay;
+    private final Random random = new Random();
+    private OutputWatcher signal;
+    private boolean useGet;
+
+    /**
+     * @param url      the url
+     * @param timeout  overall timeout, in millis
+     * @param maxDelay max delay between probes, in millis
+     */
+    ReadinessProbe(URL url, long timeout, long maxDelay) {
+        this.url = url;
+        this.timeout = timeout;
+        this.maxDelay = Math.max(maxDelay, INITIAL_DELAY);
+    }
+
+    void setSignal(OutputWatcher signal) {
+        this.signal = signal;
+    }
+
+    /**
+     * Wait until the url answers.
+     *
+     * @return number of probes
+     * @throws IllegalStateException if timed out
+     * @throws InterruptedException  if interrupted
+     */
+    int await() throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeout;
+        long delay = INITIAL_DELAY;
+        int probes = 0;
+        while (true) {
+            final long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IllegalStateException(String.format("Cannot connect to managed AppEngine, timed out after %s probes.", probes));
+            }
+
+            probes++;
+            if (probe((int) Math.min(remaining, PROBE_TIMEOUT))) {
+                return probes;
+            }
+
+            // half fixed, half random
+            final long wait = Math.min(delay / 2 + (long) (random.nextDouble() * delay / 2), Math.max(deadline - System.currentTimeMillis(), 0));
+            if (signal != null && signal.isSignaled() == false) {
+                if (signal.await(wait)) {
+                    log.fine("Server reported it's running.");
+                    delay = INITIAL_DELAY;
+                    continue;
+                }
+            } else {
+                Thread.sleep(wait);
+            }
+            delay = Math.min(delay * 2, maxDelay);
+        }
+    }
+
+    /**
+     * Single probe.
+     *
+     * @param timeout connect and read timeout
+     * @return true if the server answered with a non-error status
+     */
+    boolean probe(int timeout) {
+        try {
+            int status = request(useGet ? "GET" : "HEAD", timeout);
+            if (status == HttpURLConnection.HTTP_BAD_METHOD || status == HttpURLConnection.HTTP_NOT_IMPLEMENTED) {
+                useGet = true;
+                status = request("GET", timeout);
+            }
+            if (log.isLoggable(Level.FINE)) {
+                log.fine(String.format("Probe %s: %s", url, status));
+            }
+            return status < 400;
+        } catch (IOException e) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine(String.format("Probe %s: %s", url, e));
+            }
+            return false;
+        }
+    }
+
+    private int request(String method, int timeout) throws IOException {
+        final URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setUseCaches(false);
+        if (connection instanceof HttpURLConnection == false) {
+            drain(connection.getInputStream());
+            return HttpURLConnection.HTTP_OK;
+        }
+
+        final HttpURLConnection http = (HttpURLConnection) connection;
+        http.setRequestMethod(method);
+        http.setInstanceFollowRedirects(false);
+        final int status = http.getResponseCode();
+        // read and close whatever was sent, so the connection goes back to the keep-alive cache
+        drain((status < 400) ? http.getInputStream() : http.getErrorStream());
+        return status;
+    }
+
+    private static void drain(InputStream stream) throws IOException {
+        if (stream == null) {
+            return;
+        }
+        try {
+            final byte[] buffer = new byte[4096];
+            //noinspection StatementWithEmptyBody
+            while (stream.read(buffer) != -1) {
+            }
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reference counted SDK tools class loaders, one per tools jar.
+ * <p/>
+ * Repeated deployments reuse already loaded (and JIT compiled) SDK classes;
+ * the loader is closed once the last container releases it.
+ */
+final class SdkClassLoaders {
+    private static final Logger log = Logger.getLogger(SdkClassLoaders.class.getName());
+
+    private static final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    private SdkClassLoaders() {
+    }
+
+    /**
+     * Get the loader for the tools jar, creating it if needed.
+     * Every acquire must be matched by a release.
+     *
+     * @param toolsJar the tools jar
+     * @return the class loader
+     * @throws IOException for any I/O error
+     */
+    static synchronized URLClassLoader acquire(File toolsJar) throws IOException {
+        final String key = toolsJar.getCanonicalPath();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            final URL url = toolsJar.toURI().toURL();
+            entry = new Entry(key, new URLClassLoader(new URL[]{url}));
+            entries.put(key, entry);
+            log.fine(String.format("Created SDK class loader for %s", key));
+        }
+        entry.references++;
+        return entry.loader;
+    }
+
+    /**
+     * Release the loader, closing it if this was the last reference.
+     *
+     * @param loader the loader
+     */
+    static synchronized void release(URLClassLoader loader) {
+        for (Entry entry : entries.values()) {
+            if (entry.loader == loader) {
+                if (--entry.references == 0) {
+                    entries.remove(entry.key);
+                    try {
+                        loader.close();
+                    } catch (IOException e) {
+                        log.log(Level.WARNING, "Cannot close SDK class loader for " + entry.key, e);
+                    }
+                    log.fine(String.format("Closed SDK class loader for %s", entry.key));
+                }
+                return;
+            }
+        }
+    }
+
+    private static class Entry {
+        private final String key;
+        private final URLClassLoader loader;
+        private int references;
+
+        private Entry(String key, URLClassLoader loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.cli;
+
+import java.io.PrintStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link OutputWatcher}.
+ */
+public class OutputWatcherTestCase {
+    private static final String MARKER = "Dev App Server is now running";
+
+    @Test
+    public void testMarkerSplitAcrossWrites() throws Exception {
+        final ThreadGroup threads = new ThreadGroup("watched");
+        final OutputWatcher watcher = OutputWatcher.watch(threads, MARKER);
+        try {
+            print(threads, "INFO: Dev App Se");
+            Assert.assertFalse(watcher.isSignaled());
+            print(threads, "rver is now");
+            Assert.assertFalse(watcher.isSignaled());
+            print(threads, " running\n");
+            Assert.assertTrue(watcher.await(1000));
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testMarkerInSingleBytes() throws Exception {
+        final ThreadGroup threads = new ThreadGroup("watched");
+        final OutputWatcher watcher = OutputWatcher.watch(threads, "other marker", MARKER);
+        try {
+            run(threads, new Runnable() {
+                public void run() {
+                    for (char c : ("x" + MARKER).toCharArray()) {
+                        System.err.write(c);
+                    }
+                }
+            });
+            Assert.assertTrue(watcher.await(1000));
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testMarkerAfterLongOutput() throws Exception {
+        final ThreadGroup threads = new ThreadGroup("watched");
+        final OutputWatcher watcher = OutputWatcher.watch(threads, MARKER);
+        try {
+            final StringBuilder noise = new StringBuilder();
+            for (int i = 0; i < 100; i++) {
+                noise.append("some unrelated output line ").append(i).append('\n');
+            }
+            print(threads, noise + MARKER.substring(0, 10));
+            print(threads, MARKER.substring(10));
+            Assert.assertTrue(watcher.await(1000));
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testOtherThreadsAreIgnored() throws Exception {
+        final ThreadGroup threads = new ThreadGroup("watched");
+        final OutputWatcher watcher = OutputWatcher.watch(threads, MARKER);
+        try {
+            print(new ThreadGroup("other"), MARKER);
+            System.out.println(MARKER);
+            Assert.assertFalse(watcher.await(100));
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testNestedThreadGroup() throws Exception {
+        final ThreadGroup threads = new ThreadGroup("watched");
+        final OutputWatcher watcher = OutputWatcher.watch(threads, MARKER);
+        try {
+            print(new ThreadGroup(threads, "child"), MARKER); // e.g. KickStart's output pumps
+            Assert.assertTrue(watcher.await(1000));
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testCloseRestoresStreams() throws Exception {
+        final PrintStream out = System.out;
+        final PrintStream err = System.err;
+        final OutputWatcher first = OutputWatcher.watch(new ThreadGroup("first"), MARKER);
+        final OutputWatcher second = OutputWatcher.watch(new ThreadGroup("second"), MARKER);
+        Assert.assertNotSame(out, System.out);
+        first.close();
+        Assert.assertNotSame(out, System.out); // still watched
+        second.close();
+        Assert.assertSame(out, System.out);
+        Assert.assertSame(err, System.err);
+    }
+
+    private static void print(ThreadGroup threads, final String text) throws InterruptedException {
+        run(threads, new Runnable() {
+            public void run() {
+                System.out.print(text);
+            }
+        });
+    }
+
+    private static void run(ThreadGroup threads, Runnable runnable) throws InterruptedException {
+        final Thread thread = new Thread(threads, runnable);
+        thread.start();
+        thread.join();
+    }
+}
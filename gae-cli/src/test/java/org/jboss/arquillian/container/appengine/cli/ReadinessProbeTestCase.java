@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ReadinessProbe}.
+ */
+public class ReadinessProbeTestCase {
+    private HttpServer server;
+    private URL url;
+    private final List<String> methods = new CopyOnWriteArrayList<String>();
+    private final List<Long> times = new CopyOnWriteArrayList<Long>();
+    private volatile int headStatus = 200;
+    private volatile int getStatus = 200;
+    private volatile long readyAt;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                methods.add(exchange.getRequestMethod());
+                times.add(System.currentTimeMillis());
+                int status = "HEAD".equals(exchange.getRequestMethod()) ? headStatus : getStatus;
+                if (System.currentTimeMillis() < readyAt) {
+                    status = 503;
+                }
+                final byte[] body = "ok".getBytes("US-ASCII");
+                final boolean head = "HEAD".equals(exchange.getRequestMethod());
+                exchange.sendResponseHeaders(status, head ? -1 : body.length);
+                final OutputStream os = exchange.getResponseBody();
+                if (head == false) {
+                    os.write(body);
+                }
+                os.close();
+            }
+        });
+        server.start();
+        url = new URL("http://localhost:" + server.getAddress().getPort() + "/_ah/admin");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop(0);
+    }
+
+    @Test
+    public void testHead() throws Exception {
+        final ReadinessProbe probe = new ReadinessProbe(url, 5000, 1000);
+        Assert.assertTrue(probe.probe(1000));
+        Assert.assertEquals(1, methods.size());
+        Assert.assertEquals("HEAD", methods.get(0));
+    }
+
+    @Test
+    public void testFallbackToGetOnBadMethod() throws Exception {
+        assertFallback(405);
+    }
+
+    @Test
+    public void testFallbackToGetOnNotImplemented() throws Exception {
+        assertFallback(501);
+    }
+
+    private void assertFallback(int status) {
+        headStatus = status;
+        final ReadinessProbe probe = new ReadinessProbe(url, 5000, 1000);
+        Assert.assertTrue(probe.probe(1000));
+        Assert.assertTrue(probe.probe(1000));
+        // HEAD is tried once, then GET is used right away
+        Assert.assertEquals(methods.toString(), 3, methods.size());
+        Assert.assertEquals("HEAD", methods.get(0));
+        Assert.assertEquals("GET", methods.get(1));
+        Assert.assertEquals("GET", methods.get(2));
+    }
+
+    @Test
+    public void testErrorStatus() throws Exception {
+        headStatus = 500;
+        Assert.assertFalse(new ReadinessProbe(url, 5000, 1000).probe(1000));
+    }
+
+    @Test
+    public void testConnectionRefused() throws Exception {
+        final ServerSocket socket = new ServerSocket(0);
+        final int port = socket.getLocalPort();
+        socket.close();
+        Assert.assertFalse(new ReadinessProbe(new URL("http://localhost:" + port + "/"), 5000, 1000).probe(1000));
+    }
+
+    @Test
+    public void testBackoff() throws Exception {
+        final long maxDelay = 200;
+        readyAt = System.currentTimeMillis() + 1000;
+        final int probes = new ReadinessProbe(url, 10000, maxDelay).await();
+        Assert.assertEquals(times.size(), probes);
+        Assert.assertTrue(times.get(times.size() - 1) >= readyAt);
+
+        // delays double from the initial one, half fixed, half random, up to the max
+        long delay = ReadinessProbe.INITIAL_DELAY;
+        for (int i = 1; i < times.size(); i++) {
+            final long gap = times.get(i) - times.get(i - 1);
+            Assert.assertTrue(String.format("gap %s: %sms, delay %sms", i, gap, delay), gap >= delay / 2);
+            Assert.assertTrue(String.format("gap %s: %sms, max %sms", i, gap, maxDelay), gap <= maxDelay + 100);
+            delay = Math.min(delay * 2, maxDelay);
+        }
+        // far fewer probes than a fixed initial delay would need
+        Assert.assertTrue("probes " + probes, probes < 1000 / ReadinessProbe.INITIAL_DELAY);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        readyAt = Long.MAX_VALUE;
+        final long start = System.currentTimeMillis();
+        try {
+            new ReadinessProbe(url, 300, 100).await();
+            Assert.fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+}
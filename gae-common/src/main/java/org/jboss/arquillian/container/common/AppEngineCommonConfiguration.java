@@ -34,6 +34,15 @@ public abstract class AppEngineCommonConfiguration implements ContainerConfigura
     public static final String SDK_ROOT = PREFIX + "sdk.root";
 
     private String sdkDir = System.getProperty(SDK_ROOT);
+    private int exportParallelism = Integer.getInteger(PREFIX + "export.parallelism", 1); // 1 == sequential export
+    private boolean exportCache = Boolean.getBoolean(PREFIX + "export.cache");
+    private boolean exportLinks = Boolean.getBoolean(PREFIX + "export.links"); // hard link file assets
+    private String exportReport = System.getProperty(PREFIX + "export.report"); // strategy per exported file
+    private boolean asyncDelete = Boolean.getBoolean(PREFIX + "delete.async"); // background app location delete
+    private String portRange = System.getProperty(PREFIX + "port.range", PortAllocator.DEFAULT_RANGE); // for port 0
+    private boolean reuseDeployments = Boolean.getBoolean(PREFIX + "reuse.deployments"); // keep unchanged deployment alive
+    private boolean skipUnchanged = Boolean.getBoolean(PREFIX + "skip.unchanged"); // no upload if the live version has the same fingerprint
+    private String uploadManifestDir = System.getProperty(PREFIX + "upload.manifest.dir"); // upload deltas, off by default
 
     public void validate() throws ConfigurationException {
     }
@@ -45,4 +54,76 @@ public abstract class AppEngineCommonConfiguration implements ContainerConfigura
     public void setSdkDir(String sdkDir) {
         this.sdkDir = sdkDir;
     }
+
+    public int getExportParallelism() {
+        return exportParallelism;
+    }
+
+    public void setExportParallelism(int exportParallelism) {
+        this.exportParallelism = exportParallelism;
+    }
+
+    public boolean isExportCache() {
+        return exportCache;
+    }
+
+    public void setExportCache(boolean exportCache) {
+        this.exportCache = exportCache;
+    }
+
+    public boolean isExportLinks() {
+        return exportLinks;
+    }
+
+    public void setExportLinks(boolean exportLinks) {
+        this.exportLinks = exportLinks;
+    }
+
+    public String getExportReport() {
+        return exportReport;
+    }
+
+    public void setExportReport(String exportReport) {
+        this.exportReport = exportReport;
+    }
+
+    public boolean isAsyncDelete() {
+        return asyncDelete;
+    }
+
+    public void setAsyncDelete(boolean asyncDelete) {
+        this.asyncDelete = asyncDelete;
+    }
+
+    public String getPortRange() {
+        return portRange;
+    }
+
+    public void setPortRange(String portRange) {
+        this.portRange = portRange;
+    }
+
+    public boolean isReuseDeployments() {
+        return reuseDeployments;
+    }
+
+    public void setReuseDeployments(boolean reuseDeployments) {
+        this.reuseDeployments = reuseDeployments;
+    }
+
+    public boolean isSkipUnchanged() {
+        return skipUnchanged;
+    }
+
+    public void setSkipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    public String getUploadManifestDir() {
+        return uploadManifestDir;
+    }
+
+    public void setUploadManifestDir(String uploadManifestDir) {
+        this.uploadManifestDir = uploadManifestDir;
+    }
 }
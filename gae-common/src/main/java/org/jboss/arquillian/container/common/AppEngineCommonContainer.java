@@ -23,14 +23,14 @@
 package org.jboss.arquillian.container.common;
 
 import java.io.Closeable;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,6 +41,8 @@ import org.jboss.arquillian.container.spi.client.container.LifecycleException;
 import org.jboss.arquillian.container.spi.client.protocol.ProtocolDescription;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.HTTPContext;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
+import org.jboss.arquillian.core.api.Event;
+import org.jboss.arquillian.core.api.annotation.Inject;
 import org.jboss.arquillian.protocol.modules.ModuleMetaData;
 import org.jboss.arquillian.protocol.modules.ModulesServletProtocol;
 import org.jboss.shrinkwrap.api.Archive;
@@ -48,9 +50,6 @@ import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
 import org.jboss.shrinkwrap.descriptor.api.Descriptor;
-import org.jboss.shrinkwrap.descriptor.api.Descriptors;
-import org.jboss.shrinkwrap.descriptor.api.application5.ApplicationDescriptor;
-import org.jboss.shrinkwrap.descriptor.api.application5.ModuleType;
 
 /**
  * Common GAE Arquillian container.
@@ -59,18 +58,44 @@ import org.jboss.shrinkwrap.descriptor.api.application5.ModuleType;
  */
 public abstract class AppEngineCommonContainer<T extends ContainerConfiguration> implements DeployableContainer<T> {
     protected static final String DEFAULT = "default";
+    private static final AppEngineCommonConfiguration DEFAULT_CONFIGURATION = new AppEngineCommonConfiguration() {
+    };
+
     protected final Logger log = Logger.getLogger(getClass().getName());
 
+    @Inject
+    private Event<DeploymentPhaseEvent> phaseEvent;
+
     private File appLocation;
+    private String deploymentName;
+    private ReusableDeployment deployed; // current deployment, if reuse is enabled
+    private ReusableDeployment parked; // undeployed, but kept alive for reuse
 
     protected File getAppLocation() {
         return appLocation;
     }
 
+    /**
+     * Get common configuration.
+     * Containers whose configuration extends AppEngineCommonConfiguration should override this.
+     *
+     * @return the common configuration
+     */
+    protected AppEngineCommonConfiguration getCommonConfiguration() {
+        return DEFAULT_CONFIGURATION;
+    }
+
     public void start() throws LifecycleException {
     }
 
     public void stop() throws LifecycleException {
+        try {
+            undeployParked();
+        } catch (DeploymentException e) {
+            throw new LifecycleException("Cannot undeploy kept deployment " + deploymentName, e);
+        } finally {
+            ExportCache.purgeStale();
+        }
     }
 
     public ProtocolDescription getDefaultProtocol() {
@@ -83,21 +108,82 @@ public abstract class AppEngineCommonContainer<T extends ContainerConfiguration>
     protected abstract ProtocolMetaData doDeploy(Archive<?> archive) throws DeploymentException;
 
     public ProtocolMetaData deploy(Archive<?> archive) throws DeploymentException {
-        prepareArchive(archive);
+        deploymentName = archive.getName();
+
+        long start = System.nanoTime();
+        try {
+            prepareArchive(archive);
+        } finally {
+            recordPhase(DeploymentPhase.PREPARE_ARCHIVE, start);
+        }
+
+        final String fingerprint = getCommonConfiguration().isReuseDeployments() ? fingerprint(archive) : null;
+        if (parked != null) {
+            if (parked.fingerprint.equals(fingerprint)) {
+                log.info(String.format("Reusing unchanged deployment %s", archive.getName()));
+                deployed = parked;
+                parked = null;
+                return deployed.metaData;
+            }
+            undeployParked();
+            deploymentName = archive.getName();
+        }
 
+        start = System.nanoTime();
         try {
             appLocation = export(archive);
         } catch (Exception e) {
             throw new DeploymentException("Cannot export archive " + archive.getName() + ".", e);
+        } finally {
+            recordPhase(DeploymentPhase.EXPORT, start);
         }
 
-        return doDeploy(archive);
+        final ProtocolMetaData metaData;
+        start = System.nanoTime();
+        try {
+            metaData = doDeploy(archive);
+        } finally {
+            recordPhase(DeploymentPhase.DEPLOY, start);
+        }
+
+        if (fingerprint != null) {
+            deployed = new ReusableDeployment(archive.getName(), fingerprint, metaData);
+        }
+        return metaData;
+    }
+
+    private String fingerprint(Archive<?> archive) throws DeploymentException {
+        try {
+            return ArchiveFingerprint.of(archive);
+        } catch (IOException e) {
+            throw new DeploymentException("Cannot fingerprint archive " + archive.getName() + ".", e);
+        }
     }
 
+    /**
+     * Record phase duration, and fire it as DeploymentPhaseEvent.
+     *
+     * @param phase the phase
+     * @param start the phase start, from System.nanoTime()
+     */
+    protected void recordPhase(DeploymentPhase phase, long start) {
+        final DeploymentPhaseEvent event = new DeploymentPhaseEvent(getClass().getSimpleName(), deploymentName, phase, System.nanoTime() - start);
+        if (log.isLoggable(Level.FINE)) {
+            log.fine(event.toString());
+        }
+        DeploymentTimings.getInstance().record(event);
+        if (phaseEvent != null) {
+            phaseEvent.fire(event);
+        }
+    }
+
+    /**
+     * Directory for exported archives, one per JVM under java.io.tmpdir.
+     */
     protected File getTempRoot() {
         return AccessController.doPrivileged(new PrivilegedAction<File>() {
             public File run() {
-                File root = new File(System.getProperty("java.io.tmpdir"));
+                File root = ExportRoot.get();
                 log.info(String.format("Get temp root: %s", root));
                 return root;
             }
@@ -110,14 +196,106 @@ public abstract class AppEngineCommonContainer<T extends ContainerConfiguration>
     }
 
     protected File export(Archive<?> archive, final File root) throws Exception {
+        final AppEngineCommonConfiguration configuration = getCommonConfiguration();
         FixedExplodedExporter exporter = new FixedExplodedExporter(archive, root);
+        exporter.setParallelism(configuration.getExportParallelism());
+        exporter.setCached(configuration.isExportCache());
+        exporter.setLinks(configuration.isExportLinks());
+        if (configuration.getExportReport() != null) {
+            exporter.setReport(new File(configuration.getExportReport()));
+        }
         return exporter.export();
     }
 
+    /**
+     * Export archive into a fixed directory, whatever the archive name.
+     * The export cache is always used, so only changes are written and removed files deleted.
+     *
+     * @param archive   the archive
+     * @param directory the directory
+     * @return the directory
+     * @throws Exception for any error
+     */
+    protected File synchronize(Archive<?> archive, File directory) throws Exception {
+        final AppEngineCommonConfiguration configuration = getCommonConfiguration();
+        FixedExplodedExporter exporter = new FixedExplodedExporter(archive, directory.getParentFile(), directory.getName());
+        exporter.setParallelism(configuration.getExportParallelism());
+        exporter.setCached(true);
+        exporter.setLinks(configuration.isExportLinks());
+        if (configuration.getExportReport() != null) {
+            exporter.setReport(new File(configuration.getExportReport()));
+        }
+        return exporter.export();
+    }
+
+    /**
+     * Export archive as a single file, streamed straight from the archive, without a staging directory.
+     *
+     * @param archive the archive
+     * @param root    the parent directory
+     * @param format  the format, directory falls back to exploded export
+     * @return the exported file
+     * @throws Exception for any error
+     */
+    protected File export(Archive<?> archive, final File root, ExportFormat format) throws Exception {
+        if (format == ExportFormat.DIRECTORY) {
+            return export(archive, root);
+        }
+
+        final File file = new File(root, format.fileName(archive.getName()));
+        // exportTo closes the stream
+        format.exporter(archive).exportTo(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        log.info(String.format("Exported %s to %s [%s bytes]", archive.getName(), file, file.length()));
+        return file;
+    }
+
     public void undeploy(Archive<?> archive) throws DeploymentException {
-        teardown();
-        shutdownServer();
-        deleteAppLocation();
+        deploymentName = archive.getName();
+
+        if (deployed != null) {
+            // the next deployment, or stop, decides
+            log.info(String.format("Keeping deployment %s for reuse", archive.getName()));
+            parked = deployed;
+            deployed = null;
+            return;
+        }
+
+        doUndeploy();
+    }
+
+    private void undeployParked() throws DeploymentException {
+        if (parked == null) {
+            return;
+        }
+        deploymentName = parked.name;
+        parked = null;
+        doUndeploy();
+    }
+
+    /**
+     * Teardown, shutdown server and delete app location.
+     */
+    protected void doUndeploy() throws DeploymentException {
+        long start = System.nanoTime();
+        try {
+            teardown();
+        } finally {
+            recordPhase(DeploymentPhase.TEARDOWN, start);
+        }
+
+        start = System.nanoTime();
+        try {
+            shutdownServer();
+        } finally {
+            recordPhase(DeploymentPhase.SHUTDOWN_SERVER, start);
+        }
+
+        start = System.nanoTime();
+        try {
+            deleteAppLocation();
+        } finally {
+            recordPhase(DeploymentPhase.DELETE_APP_LOCATION, start);
+        }
     }
 
     public void deploy(Descriptor descriptor) throws DeploymentException {
@@ -158,24 +336,9 @@ public abstract class AppEngineCommonContainer<T extends ContainerConfiguration>
         final List<ModuleMetaData> list = new ArrayList<ModuleMetaData>();
         if (archive instanceof EnterpriseArchive) {
             final EnterpriseArchive ear = (EnterpriseArchive) archive;
-            final Node appXml = archive.get(ParseUtils.APPLICATION_XML);
-            if (appXml != null) {
-                InputStream stream = appXml.getAsset().openStream();
-                try {
-                    ApplicationDescriptor ad = Descriptors.importAs(ApplicationDescriptor.class).fromStream(stream);
-                    List<ModuleType<ApplicationDescriptor>> allModules = ad.getAllModule();
-                    for (ModuleType<ApplicationDescriptor> mt : allModules) {
-                        String uri = mt.getOrCreateWeb().getWebUri();
-                        if (uri != null) {
-                            WebArchive war = ear.getAsType(WebArchive.class, uri);
-                            handleWar(host, port, war, list);
-                        } else {
-                            mt.removeWeb();
-                        }
-                    }
-                } finally {
-                    safeClose(stream);
-                }
+            for (String uri : ArchiveDescriptor.of(ear).getWebUris()) {
+                WebArchive war = ear.getAsType(WebArchive.class, uri);
+                handleWar(host, port, war, list);
             }
         } else if (archive instanceof WebArchive) {
             final WebArchive war = (WebArchive) archive;
@@ -211,8 +374,7 @@ public abstract class AppEngineCommonContainer<T extends ContainerConfiguration>
         if (awXml == null) {
             throw new IllegalStateException("Missing appengine-web.xml: " + war.toString(true));
         }
-        final Map<String, String> results = ParseUtils.parseTokens(awXml, ParseUtils.MODULE);
-        return results.get(ParseUtils.MODULE);
+        return ArchiveDescriptor.of(war).getModule();
     }
 
     protected static void safeClose(Closeable closeable) {
@@ -221,13 +383,22 @@ public abstract class AppEngineCommonContainer<T extends ContainerConfiguration>
 
     /**
      * Delete app location.
+     * With export cache enabled, the location is only marked as stale and reused by the next export,
+     * with async delete it's moved aside and deleted in the background.
      */
     protected void deleteAppLocation() {
         if (appLocation == null)
             return;
 
         try {
-            deleteRecursively(appLocation);
+            final AppEngineCommonConfiguration configuration = getCommonConfiguration();
+            if (configuration.isExportCache() && appLocation.isDirectory()) {
+                ExportCache.markStale(appLocation);
+            } else if (configuration.isAsyncDelete()) {
+                AppLocationReaper.getInstance().reap(appLocation);
+            } else {
+                deleteRecursively(appLocation);
+            }
         } catch (IOException e) {
             log.log(Level.WARNING, "Cannot delete app location.", e);
         } finally {
@@ -247,7 +418,7 @@ public abstract class AppEngineCommonContainer<T extends ContainerConfiguration>
     protected void teardown() throws DeploymentException {
     }
 
-    static void deleteRecursively(File file) throws IOException {
+    protected static void deleteRecursively(File file) throws IOException {
         if (file.isDirectory())
             deleteDirectoryContents(file);
 
@@ -265,4 +436,16 @@ public abstract class AppEngineCommonContainer<T extends ContainerConfiguration>
             deleteRecursively(file);
         }
     }
+
+    private static class ReusableDeployment {
+        private final String name;
+        private final String fingerprint;
+        private final ProtocolMetaData metaData;
+
+        private ReusableDeployment(String name, String fingerprint, ProtocolMetaData metaData) {
+            this.name = name;
+            this.fingerprint = fingerprint;
+            this.metaData = metaData;
+        }
+    }
 }
@@ -0,0 +1,248 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Deletes app locations in the background.
+ * <p/>
+ * The directory is first renamed aside, so the same location can be exported to right away,
+ * then deleted by a low priority daemon thread. Files which can't be deleted (e.g. still locked)
+ * are retried, and whatever is left is deleted by a shutdown hook.
+ */
+class AppLocationReaper implements Runnable {
+    private static final Logger log = Logger.getLogger(AppLocationReaper.class.getName());
+
+    private static final AppLocationReaper INSTANCE = new AppLocationReaper(5, 200L);
+
+    static final String REAPED = ".reaped-";
+    private static final long DRAIN_WAIT = 5000L; // millis, for the delete in progress
+
+    private final int attempts;
+    private final long retryDelay; // millis, times attempt
+    private final BlockingQueue<Path> queue = new LinkedBlockingQueue<Path>();
+    private final Queue<Path> leftovers = new ConcurrentLinkedQueue<Path>(); // failed all attempts, left to drain
+    private final AtomicLong counter = new AtomicLong();
+    private volatile Path current;
+    private Thread thread;
+    private boolean hooked;
+
+    AppLocationReaper(int attempts, long retryDelay) {
+        this.attempts = attempts;
+        this.retryDelay = retryDelay;
+    }
+
+    static AppLocationReaper getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Rename the directory aside and schedule its deletion.
+     * If it cannot be renamed atomically, it's deleted right away.
+     *
+     * @param directory the directory
+     * @throws IOException for any I/O error on synchronous delete
+     */
+    void reap(File directory) throws IOException {
+        final Path source = directory.toPath();
+        final Path target = source.resolveSibling(directory.getName() + REAPED + System.currentTimeMillis() + "-" + counter.incrementAndGet());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            log.log(Level.FINE, String.format("Cannot move %s aside, deleting it now.", directory), e);
+            remove(source);
+            return;
+        }
+
+        queue.add(target);
+        start();
+    }
+
+    private synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+
+        thread = new Thread(this, "AppEngine app location reaper");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+
+        if (hooked == false) {
+            hooked = true;
+            Runtime.getRuntime().addShutdownHook(new Thread("AppEngine app location reaper hook") {
+                public void run() {
+                    drain();
+                }
+            });
+        }
+    }
+
+    public void run() {
+        while (true) {
+            try {
+                current = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                if (delete(current, attempts) == false) {
+                    leftovers.add(current);
+                }
+            } finally {
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Stop the reaper thread and delete everything still pending, in the calling thread.
+     */
+    void drain() {
+        final Thread reaper;
+        synchronized (this) {
+            reaper = thread;
+            thread = null;
+        }
+        if (reaper != null) {
+            // the delete in progress finishes, or ends up in the leftovers
+            reaper.interrupt();
+            try {
+                reaper.join(DRAIN_WAIT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (reaper.isAlive()) {
+                log.warning("App location reaper still deleting " + current + ", leaving it.");
+            }
+        }
+        Path path;
+        while ((path = leftovers.poll()) != null) {
+            delete(path, 1);
+        }
+        while ((path = queue.poll()) != null) {
+            delete(path, 1);
+        }
+    }
+
+    private boolean delete(Path path, int attempts) {
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            try {
+                remove(path);
+                return true;
+            } catch (IOException e) {
+                if (attempt == attempts) {
+                    log.log(Level.WARNING, "Cannot delete " + path, e);
+                    return false;
+                }
+                try {
+                    Thread.sleep(retryDelay * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delete one renamed app location.
+     *
+     * @param path the path
+     * @throws IOException if anything could not be deleted
+     */
+    void remove(Path path) throws IOException {
+        deleteTree(path);
+    }
+
+    /**
+     * Delete the tree, continuing past failures; the first one is rethrown at the end.
+     *
+     * @param root the root
+     * @throws IOException if anything could not be deleted
+     */
+    static void deleteTree(Path root) throws IOException {
+        final IOException[] failure = new IOException[1];
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                if (e instanceof NoSuchFileException == false) {
+                    fail(e);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                if (e != null) {
+                    fail(e);
+                }
+                delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            private void delete(Path path) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+
+            private void fail(IOException e) {
+                if (failure[0] == null) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+}
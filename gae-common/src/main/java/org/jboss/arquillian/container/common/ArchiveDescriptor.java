@@ -0,0 +1,216 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.FileAsset;
+import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
+import org.jboss.shrinkwrap.descriptor.api.Descriptors;
+import org.jboss.shrinkwrap.descriptor.api.application5.ApplicationDescriptor;
+import org.jboss.shrinkwrap.descriptor.api.application5.ModuleType;
+
+/**
+ * Descriptor metadata of a deployment archive.
+ * <p/>
+ * For a .war it holds appengine-web.xml info, for an .ear the application id
+ * from appengine-application.xml and the web modules from application.xml.
+ * Descriptors are parsed once per asset instance, so the same archive
+ * (or a .war merged into a copy) is never parsed twice.
+ */
+public final class ArchiveDescriptor {
+    public static final String DEFAULT_LIBRARY_DIRECTORY = "lib";
+
+    private static final ArchiveDescriptor EMPTY = new ArchiveDescriptor(null, null, null, null, Collections.<String>emptyList(), DEFAULT_LIBRARY_DIRECTORY);
+
+    private final String application;
+    private final String module;
+    private final String version;
+    private final Boolean threadsafe;
+    private final List<String> webUris;
+    private final String libraryDirectory;
+
+    private ArchiveDescriptor(String application, String module, String version, Boolean threadsafe, List<String> webUris, String libraryDirectory) {
+        this.application = application;
+        this.module = module;
+        this.version = version;
+        this.threadsafe = threadsafe;
+        this.webUris = webUris;
+        this.libraryDirectory = libraryDirectory;
+    }
+
+    /**
+     * Get archive's descriptor metadata.
+     * Missing descriptors simply leave the matching values null / empty.
+     *
+     * @param archive the .war or .ear archive
+     * @return the descriptor metadata
+     */
+    public static ArchiveDescriptor of(Archive<?> archive) {
+        try {
+            if (archive instanceof EnterpriseArchive) {
+                final ArchiveDescriptor app = Reader.APPENGINE_APPLICATION.read(archive.get(ParseUtils.APPENGINE_APPLICATION_XML));
+                final ArchiveDescriptor modules = Reader.APPLICATION.read(archive.get(ParseUtils.APPLICATION_XML));
+                return new ArchiveDescriptor(app.application, null, null, null, modules.webUris, modules.libraryDirectory);
+            } else {
+                return Reader.APPENGINE_WEB.read(archive.get(ParseUtils.APPENGINE_WEB_XML));
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot read descriptors of " + archive.getName(), e);
+        }
+    }
+
+    /**
+     * Application id, from appengine-web.xml or appengine-application.xml.
+     */
+    public String getApplication() {
+        return application;
+    }
+
+    /**
+     * Module name, null if not set or not a .war.
+     */
+    public String getModule() {
+        return module;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public Boolean getThreadsafe() {
+        return threadsafe;
+    }
+
+    /**
+     * Web module uris from application.xml, in declaration order.
+     */
+    public List<String> getWebUris() {
+        return webUris;
+    }
+
+    /**
+     * Library directory from application.xml, "lib" if not set, empty if disabled.
+     */
+    public String getLibraryDirectory() {
+        return libraryDirectory;
+    }
+
+    private static enum Reader {
+        APPENGINE_WEB {
+            ArchiveDescriptor parse(Node xml) throws Exception {
+                final Map<String, String> results = ParseUtils.parseTokens(xml, ParseUtils.APPLICATION, ParseUtils.MODULE, ParseUtils.VERSION, ParseUtils.THREADSAFE);
+                final String threadsafe = results.get(ParseUtils.THREADSAFE);
+                return new ArchiveDescriptor(
+                    results.get(ParseUtils.APPLICATION),
+                    results.get(ParseUtils.MODULE),
+                    results.get(ParseUtils.VERSION),
+                    (threadsafe != null) ? Boolean.valueOf(threadsafe) : null,
+                    Collections.<String>emptyList(),
+                    DEFAULT_LIBRARY_DIRECTORY
+                );
+            }
+        },
+        APPENGINE_APPLICATION {
+            ArchiveDescriptor parse(Node xml) throws Exception {
+                final Map<String, String> results = ParseUtils.parseTokens(xml, ParseUtils.APPLICATION);
+                return new ArchiveDescriptor(results.get(ParseUtils.APPLICATION), null, null, null, Collections.<String>emptyList(), DEFAULT_LIBRARY_DIRECTORY);
+            }
+        },
+        APPLICATION {
+            ArchiveDescriptor parse(Node xml) throws Exception {
+                final ApplicationDescriptor ad;
+                InputStream stream = xml.getAsset().openStream();
+                try {
+                    ad = Descriptors.importAs(ApplicationDescriptor.class).fromStream(stream);
+                } finally {
+                    ParseUtils.safeClose(stream);
+                }
+
+                final List<String> uris = new ArrayList<String>();
+                for (ModuleType<ApplicationDescriptor> mt : ad.getAllModule()) {
+                    String uri = mt.getOrCreateWeb().getWebUri();
+                    if (uri != null) {
+                        uris.add(uri);
+                    }
+                }
+                String libDir = ad.getLibraryDirectory();
+                if (libDir == null) {
+                    libDir = DEFAULT_LIBRARY_DIRECTORY;
+                }
+                return new ArchiveDescriptor(null, null, null, null, Collections.unmodifiableList(uris), libDir.trim());
+            }
+        };
+
+        // keyed by asset identity, assets don't override equals
+        private final Map<Asset, Entry> cache = Collections.synchronizedMap(new WeakHashMap<Asset, Entry>());
+
+        abstract ArchiveDescriptor parse(Node xml) throws Exception;
+
+        ArchiveDescriptor read(Node xml) throws Exception {
+            if (xml == null || xml.getAsset() == null) {
+                return EMPTY;
+            }
+
+            final Asset asset = xml.getAsset();
+            final String stamp = stamp(asset);
+            Entry entry = cache.get(asset);
+            if (entry == null || entry.stamp.equals(stamp) == false) {
+                entry = new Entry(stamp, parse(xml));
+                cache.put(asset, entry);
+            }
+            return entry.descriptor;
+        }
+
+        private static String stamp(Asset asset) {
+            if (asset instanceof FileAsset) {
+                // file content can change underneath the same asset
+                final File source = ((FileAsset) asset).getSource();
+                return source.lastModified() + ":" + source.length();
+            }
+            return "";
+        }
+    }
+
+    private static class Entry {
+        private final String stamp;
+        private final ArchiveDescriptor descriptor;
+
+        private Entry(String stamp, ArchiveDescriptor descriptor) {
+            this.stamp = stamp;
+            this.descriptor = descriptor;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.ArchiveAsset;
+import org.jboss.shrinkwrap.api.asset.Asset;
+
+/**
+ * Content fingerprint of an archive.
+ * <p/>
+ * Paths are hashed in sorted order, nested archives by their content,
+ * so it doesn't depend on insertion order or on zip entry timestamps.
+ */
+final class ArchiveFingerprint {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ArchiveFingerprint() {
+    }
+
+    static String of(Archive<?> archive) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, archive);
+        return ExportCache.toHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, Archive<?> archive) throws IOException {
+        final Map<String, Node> content = new TreeMap<String, Node>();
+        for (Map.Entry<ArchivePath, Node> entry : archive.getContent().entrySet()) {
+            content.put(entry.getKey().get(), entry.getValue());
+        }
+        digest.update(archive.getName().getBytes(UTF_8));
+        for (Map.Entry<String, Node> entry : content.entrySet()) {
+            digest.update(entry.getKey().getBytes(UTF_8));
+            final Asset asset = entry.getValue().getAsset();
+            if (asset instanceof ArchiveAsset) {
+                update(digest, ((ArchiveAsset) asset).getArchive());
+            } else if (asset != null) {
+                digest.update(ExportCache.hash(asset).getBytes(UTF_8));
+            }
+            digest.update((byte) 0);
+        }
+    }
+}
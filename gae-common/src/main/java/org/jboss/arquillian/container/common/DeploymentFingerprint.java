@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.protocol.modules.ModuleHosts;
+
+/**
+ * Fingerprint of an exported application, served as a static file by the deployed version.
+ * <p/>
+ * Before uploading, the container can fetch the fingerprint from the live version
+ * and skip the upload if it is the same build.
+ */
+public final class DeploymentFingerprint {
+    private static final Logger log = Logger.getLogger(DeploymentFingerprint.class.getName());
+
+    public static final String FILE = "arquillian-fingerprint.txt";
+
+    private static final int TIMEOUT = 10 * 1000;
+    private static final int MAX_LENGTH = 1024;
+
+    private DeploymentFingerprint() {
+    }
+
+    /**
+     * Fingerprint the exploded application and add the fingerprint file to it.
+     *
+     * @param app the exploded application
+     * @return the fingerprint
+     * @throws IOException for any I/O error
+     */
+    public static String write(File app) throws IOException {
+        final File file = new File(app, FILE);
+        if (file.exists() && file.delete() == false) {
+            throw new IOException("Cannot delete old fingerprint " + file);
+        }
+        final String fingerprint = UploadManifest.fingerprint(app);
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(fingerprint.getBytes("US-ASCII"));
+        } finally {
+            ParseUtils.safeClose(os);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * The fingerprint URL of a deployed version.
+     *
+     * @param host    the application host, e.g. myapp.appspot.com
+     * @param module  the module, can be null
+     * @param version the version, can be null
+     * @return the url
+     */
+    public static String url(String host, String module, String version) {
+        return "http://" + ModuleHosts.host(host, module, version, 0) + "/" + FILE;
+    }
+
+    /**
+     * Check if the version behind the url already serves this fingerprint.
+     * Any failure counts as a mismatch.
+     *
+     * @param url         the fingerprint url
+     * @param fingerprint the expected fingerprint
+     * @return true if it matches
+     */
+    public static boolean isLive(String url, String fingerprint) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setReadTimeout(TIMEOUT);
+            connection.setUseCaches(false);
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return false;
+            }
+            final InputStream is = connection.getInputStream();
+            try {
+                final ByteArrayOutputStream body = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[256];
+                int read;
+                while ((read = is.read(buffer)) != -1 && body.size() < MAX_LENGTH) {
+                    body.write(buffer, 0, read);
+                }
+                return fingerprint.equals(body.toString("US-ASCII").trim());
+            } finally {
+                ParseUtils.safeClose(is);
+            }
+        } catch (IOException e) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine(String.format("Cannot read fingerprint %s: %s", url, e));
+            }
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+}
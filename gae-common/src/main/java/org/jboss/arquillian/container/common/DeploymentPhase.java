@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+/**
+ * Timed deployment phases of AppEngine containers.
+ */
+public enum DeploymentPhase {
+    /**
+     * Container specific archive preparation, before export.
+     */
+    PREPARE_ARCHIVE,
+    /**
+     * Export of the archive to the app location.
+     */
+    EXPORT,
+    /**
+     * Loading SDK tools classes, cheap once the class loader is cached.
+     */
+    CLASS_LOADING,
+    /**
+     * The whole container specific deploy, including class loading, readiness, SDK startup or upload.
+     */
+    DEPLOY,
+    /**
+     * Waiting for the deployed application to answer.
+     */
+    READINESS,
+    /**
+     * Warming up instances after readiness, remote only.
+     */
+    WARMUP,
+    /**
+     * Teardown of the GAE Api environment.
+     */
+    TEARDOWN,
+    /**
+     * Server shutdown.
+     */
+    SHUTDOWN_SERVER,
+    /**
+     * Deletion of the app location.
+     */
+    DELETE_APP_LOCATION
+}
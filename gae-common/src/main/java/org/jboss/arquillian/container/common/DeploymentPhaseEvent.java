@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fired by AppEngine containers after each deployment phase.
+ */
+public class DeploymentPhaseEvent {
+    private final String container;
+    private final String deployment;
+    private final DeploymentPhase phase;
+    private final long nanos;
+
+    public DeploymentPhaseEvent(String container, String deployment, DeploymentPhase phase, long nanos) {
+        this.container = container;
+        this.deployment = deployment;
+        this.phase = phase;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Container type, its simple class name.
+     */
+    public String getContainer() {
+        return container;
+    }
+
+    /**
+     * Deployment archive name, can be null.
+     */
+    public String getDeployment() {
+        return deployment;
+    }
+
+    public DeploymentPhase getPhase() {
+        return phase;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s [%s]: %s ms", container, phase, deployment, getMillis());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects deployment phase timings of all containers in this JVM.
+ * <p/>
+ * Registered as "org.jboss.arquillian.container.appengine:type=DeploymentTimings" MBean on first use.
+ */
+public final class DeploymentTimings implements DeploymentTimingsMBean {
+    private static final Logger log = Logger.getLogger(DeploymentTimings.class.getName());
+
+    public static final String OBJECT_NAME = "org.jboss.arquillian.container.appengine:type=DeploymentTimings";
+
+    private static final DeploymentTimings INSTANCE = new DeploymentTimings();
+
+    // container -> phase -> nanos
+    private final Map<String, Map<DeploymentPhase, List<Long>>> samples = new TreeMap<String, Map<DeploymentPhase, List<Long>>>();
+
+    private volatile boolean registered;
+
+    private DeploymentTimings() {
+    }
+
+    public static DeploymentTimings getInstance() {
+        INSTANCE.register();
+        return INSTANCE;
+    }
+
+    private void register() {
+        if (registered) {
+            return;
+        }
+        synchronized (this) {
+            if (registered) {
+                return;
+            }
+            registered = true;
+            try {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                final ObjectName name = new ObjectName(OBJECT_NAME);
+                if (server.isRegistered(name) == false) {
+                    server.registerMBean(this, name);
+                }
+            } catch (Exception e) {
+                log.log(Level.WARNING, "Cannot register deployment timings MBean.", e);
+            }
+        }
+    }
+
+    public synchronized void record(DeploymentPhaseEvent event) {
+        Map<DeploymentPhase, List<Long>> phases = samples.get(event.getContainer());
+        if (phases == null) {
+            phases = new TreeMap<DeploymentPhase, List<Long>>();
+            samples.put(event.getContainer(), phases);
+        }
+        List<Long> list = phases.get(event.getPhase());
+        if (list == null) {
+            list = new ArrayList<Long>();
+            phases.put(event.getPhase(), list);
+        }
+        list.add(event.getNanos());
+    }
+
+    public synchronized String[] getSummary() {
+        final List<String> lines = new ArrayList<String>();
+        for (Map.Entry<String, Map<DeploymentPhase, List<Long>>> container : samples.entrySet()) {
+            for (Map.Entry<DeploymentPhase, List<Long>> phase : container.getValue().entrySet()) {
+                final long[] nanos = sorted(phase.getValue());
+                long total = 0;
+                for (long n : nanos) {
+                    total += n;
+                }
+                lines.add(String.format("%s\t%s\t%d\t%.1f\t%.1f\t%.1f\t%.1f",
+                    container.getKey(), phase.getKey(), nanos.length,
+                    millis(percentile(nanos, 50)), millis(percentile(nanos, 95)), millis(nanos[nanos.length - 1]), millis(total)));
+            }
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    public synchronized void reset() {
+        samples.clear();
+    }
+
+    /**
+     * Write the summary, overwriting the file.
+     *
+     * @param file the summary file
+     * @throws IOException for any I/O error
+     */
+    public void writeSummary(File file) throws IOException {
+        final String[] summary = getSummary();
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent.mkdirs() == false && parent.isDirectory() == false) {
+            throw new IOException("Cannot create " + parent);
+        }
+        final PrintWriter writer = new PrintWriter(new FileWriter(file));
+        try {
+            writer.println("# container\tphase\tcount\tp50 ms\tp95 ms\tmax ms\ttotal ms");
+            for (String line : summary) {
+                writer.println(line);
+            }
+        } finally {
+            ParseUtils.safeClose(writer);
+        }
+    }
+
+    private static long[] sorted(List<Long> values) {
+        final long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    // nearest rank
+    static long percentile(long[] sorted, int percentile) {
+        final int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1000000.0;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.core.api.annotation.Observes;
+import org.jboss.arquillian.test.spi.event.suite.AfterSuite;
+
+/**
+ * Write deployment phase timings summary after the suite.
+ * <p/>
+ * The file defaults to target/appengine-timings.txt, use -Dappengine.timings.file to change it.
+ */
+public class DeploymentTimingsObserver {
+    private static final Logger log = Logger.getLogger(DeploymentTimingsObserver.class.getName());
+
+    public static final String TIMINGS_FILE = AppEngineCommonConfiguration.PREFIX + "timings.file";
+
+    public void writeSummary(@Observes AfterSuite event) {
+        final DeploymentTimings timings = DeploymentTimings.getInstance();
+        final String[] summary = timings.getSummary();
+        if (summary.length == 0) {
+            return;
+        }
+
+        final File file = new File(System.getProperty(TIMINGS_FILE, "target/appengine-timings.txt"));
+        try {
+            timings.writeSummary(file);
+            log.info(String.format("Deployment timings written to %s", file));
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Cannot write deployment timings to " + file, e);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.FileAsset;
+
+/**
+ * Content-addressed index of an exported archive.
+ * <p/>
+ * The index maps every exported path to its content hash and the exported file's size and timestamp,
+ * so a repeated export into the same directory only rewrites changed assets and removes everything else.
+ * The index and the stale marker live next to the export directory, not inside it.
+ * Directories still marked stale when the container stops are deleted, see {@link #purgeStale()}.
+ */
+public class ExportCache {
+    private static final Logger log = Logger.getLogger(ExportCache.class.getName());
+
+    private static final String INDEX_SUFFIX = ".export-index";
+    private static final String STALE_SUFFIX = ".export-stale";
+    private static final String DIRECTORY = "<dir>";
+
+    private static final Set<File> stale = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+    private final File root;
+    private final Properties previous = new Properties();
+    private final Map<String, String> current = new ConcurrentHashMap<String, String>();
+
+    public ExportCache(File root) throws IOException {
+        this.root = root;
+
+        final File index = getIndex(root);
+        if (index.exists()) {
+            InputStream is = new FileInputStream(index);
+            try {
+                previous.load(is);
+            } finally {
+                ParseUtils.safeClose(is);
+            }
+            // a failed export must not leave a valid index behind
+            if (index.delete() == false) {
+                throw new IOException("Cannot delete export index " + index);
+            }
+            if (log.isLoggable(Level.FINE)) {
+                log.fine(String.format("Reusing export cache %s [%s entries]", root, previous.size()));
+            }
+        } else {
+            // unknown content, start from scratch
+            AppEngineCommonContainer.deleteDirectoryContents(root);
+        }
+    }
+
+    private static File getIndex(File root) {
+        return new File(root.getParentFile(), root.getName() + INDEX_SUFFIX);
+    }
+
+    private static File getStaleMarker(File root) {
+        return new File(root.getParentFile(), root.getName() + STALE_SUFFIX);
+    }
+
+    /**
+     * Mark export directory as stale, instead of deleting it.
+     * The next export into it reuses it, otherwise it's deleted by {@link #purgeStale()}.
+     *
+     * @param root the export directory
+     * @throws IOException for any I/O error
+     */
+    static void markStale(File root) throws IOException {
+        final File marker = getStaleMarker(root);
+        if (marker.exists() == false && marker.createNewFile() == false) {
+            throw new IOException("Cannot create stale marker " + marker);
+        }
+        stale.add(root);
+    }
+
+    /**
+     * Delete export directories which were marked stale and not reused since, with their index.
+     */
+    static void purgeStale() {
+        for (File root : new ArrayList<File>(stale)) {
+            stale.remove(root);
+            final File marker = getStaleMarker(root);
+            if (marker.exists() == false) {
+                continue; // reused
+            }
+            try {
+                if (root.exists()) {
+                    AppEngineCommonContainer.deleteRecursively(root);
+                }
+                final File index = getIndex(root);
+                if (index.exists() && index.delete() == false) {
+                    throw new IOException("Cannot delete export index " + index);
+                }
+                if (marker.delete() == false) {
+                    throw new IOException("Cannot delete stale marker " + marker);
+                }
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine("Deleted stale export " + root);
+                }
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Cannot delete stale export " + root, e);
+            }
+        }
+    }
+
+    void directory(String path) {
+        current.put(path, DIRECTORY);
+    }
+
+    /**
+     * Record the asset's hash and check if the exported file already holds the same content.
+     *
+     * @param path  the relative path
+     * @param asset the asset
+     * @param file  the exported file
+     * @return true if the file can be left as it is, false otherwise
+     * @throws IOException for any I/O error
+     */
+    public boolean isUpToDate(String path, Asset asset, File file) throws IOException {
+        final String hash = hash(asset);
+        current.put(path, hash);
+
+        // size:lastModified:hash, as the file was left by the previous export
+        final String entry = previous.getProperty(path);
+        if (entry == null || file.isFile() == false) {
+            return false;
+        }
+        final String[] split = entry.split(":", 3);
+        return split.length == 3
+            && hash.equals(split[2])
+            && split[0].equals(String.valueOf(file.length()))
+            && split[1].equals(String.valueOf(file.lastModified()));
+    }
+
+    /**
+     * Remove every file which is not part of the archive and store the new index.
+     * This includes files written into the export directory after the previous export.
+     *
+     * @throws IOException for any I/O error
+     */
+    public void commit() throws IOException {
+        final Set<String> parents = new HashSet<String>();
+        for (String path : current.keySet()) {
+            for (int i = path.lastIndexOf('/'); i > 0; i = path.lastIndexOf('/', i - 1)) {
+                parents.add(path.substring(0, i));
+            }
+        }
+        final List<File> removed = new ArrayList<File>();
+        collectUntracked(root, "", parents, removed);
+        for (File file : removed) {
+            AppEngineCommonContainer.deleteRecursively(file);
+        }
+
+        final Properties index = new Properties();
+        for (Map.Entry<String, String> entry : current.entrySet()) {
+            final String path = entry.getKey();
+            final String hash = entry.getValue();
+            if (DIRECTORY.equals(hash)) {
+                index.setProperty(path, hash);
+            } else {
+                final File file = new File(root, path);
+                index.setProperty(path, file.length() + ":" + file.lastModified() + ":" + hash);
+            }
+        }
+        OutputStream os = new FileOutputStream(getIndex(root));
+        try {
+            index.store(os, "Arquillian GAE export index");
+        } finally {
+            ParseUtils.safeClose(os);
+        }
+
+        final File marker = getStaleMarker(root);
+        if (marker.exists() && marker.delete() == false) {
+            log.warning("Cannot delete stale marker " + marker);
+        }
+        stale.remove(root);
+
+        if (log.isLoggable(Level.FINE)) {
+            log.fine(String.format("Export cache %s: %s entries, %s removed", root, current.size(), removed.size()));
+        }
+    }
+
+    private void collectUntracked(File dir, String prefix, Set<String> parents, List<File> untracked) {
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            final String path = prefix + "/" + file.getName();
+            if (current.containsKey(path) == false && parents.contains(path) == false) {
+                untracked.add(file);
+            } else if (file.isDirectory()) {
+                collectUntracked(file, path, parents, untracked);
+            }
+        }
+    }
+
+    static String hash(Asset asset) throws IOException {
+        if (asset instanceof FileAsset) {
+            // file backed assets are identified by their source, no need to read them
+            final File source = ((FileAsset) asset).getSource();
+            return String.format("file:%s:%s:%s", source.getCanonicalPath(), source.length(), source.lastModified());
+        }
+
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final InputStream is = asset.openStream();
+        try {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            ParseUtils.safeClose(is);
+        }
+        return toHex(digest.digest());
+    }
+
+    static String toHex(byte[] bytes) {
+        final char[] digits = "0123456789abcdef".toCharArray();
+        final StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(digits[(b >> 4) & 0xF]).append(digits[b & 0xF]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.exporter.StreamExporter;
+import org.jboss.shrinkwrap.api.exporter.TarGzExporter;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+
+/**
+ * How an archive is exported to the app location.
+ */
+public enum ExportFormat {
+    /**
+     * Exploded directory.
+     */
+    DIRECTORY(null, null),
+    /**
+     * Zip file, streamed in a single pass.
+     */
+    ZIP(".zip", ZipExporter.class),
+    /**
+     * Gzipped tar file, streamed in a single pass.
+     */
+    TAR_GZ(".tar.gz", TarGzExporter.class);
+
+    private final String extension;
+    private final Class<? extends StreamExporter> exporter;
+
+    private ExportFormat(String extension, Class<? extends StreamExporter> exporter) {
+        this.extension = extension;
+        this.exporter = exporter;
+    }
+
+    /**
+     * Parse format, e.g. "directory", "zip" or "tar.gz".
+     *
+     * @param format the format, null means directory
+     * @return the export format
+     */
+    public static ExportFormat parse(String format) {
+        if (format == null || format.trim().length() == 0) {
+            return DIRECTORY;
+        }
+        return valueOf(format.trim().toUpperCase().replace('.', '_'));
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    StreamExporter exporter(Archive<?> archive) {
+        if (exporter == null) {
+            throw new IllegalStateException("Directory is not a stream format");
+        }
+        return archive.as(exporter);
+    }
+
+    /**
+     * File name for the archive, its extension replaced by this format's.
+     *
+     * @param name the archive name
+     * @return the file name
+     */
+    String fileName(String name) {
+        final int dot = name.lastIndexOf('.');
+        return ((dot > 0) ? name.substring(0, dot) : name) + extension;
+    }
+}
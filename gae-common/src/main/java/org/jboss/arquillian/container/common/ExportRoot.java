@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Per JVM directory for exported archives.
+ * <p/>
+ * Exports are named after the archive, so JVMs sharing java.io.tmpdir (e.g. parallel Surefire forks)
+ * would write into each other's directories. Like the ports of {@link PortAllocator}, each JVM locks
+ * the first free slot under arquillian-gae-exports and holds it until it exits, so the next run reuses it.
+ */
+final class ExportRoot {
+    private static final Logger log = Logger.getLogger(ExportRoot.class.getName());
+
+    private static final int MAX_SLOTS = 1000;
+
+    private static final Map<File, FileLock> held = new HashMap<File, FileLock>(); // released when the JVM exits
+    private static File root;
+
+    private ExportRoot() {
+    }
+
+    /**
+     * The export root of this JVM, java.io.tmpdir itself if no slot can be locked.
+     *
+     * @return the directory
+     */
+    static synchronized File get() {
+        if (root == null) {
+            final File tmp = new File(System.getProperty("java.io.tmpdir"));
+            root = take(new File(tmp, "arquillian-gae-exports"));
+            if (root == null) {
+                log.warning("Cannot lock an export directory, parallel JVMs need a distinct java.io.tmpdir.");
+                root = tmp;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Lock the first free slot.
+     *
+     * @param slots the slot parent directory
+     * @return the slot directory, or null if none can be locked
+     */
+    static synchronized File take(File slots) {
+        if (slots.mkdirs() == false && slots.isDirectory() == false) {
+            log.warning("Cannot create export directory " + slots);
+            return null;
+        }
+        for (int i = 0; i < MAX_SLOTS; i++) {
+            final File lockFile = new File(slots, i + ".lock");
+            if (held.containsKey(lockFile)) {
+                continue; // closing another channel on it could release our lock
+            }
+            RandomAccessFile file = null;
+            try {
+                file = new RandomAccessFile(lockFile, "rw");
+                final FileLock lock = file.getChannel().tryLock();
+                if (lock != null) {
+                    final File slot = new File(slots, String.valueOf(i));
+                    if (slot.mkdirs() || slot.isDirectory()) {
+                        held.put(lockFile, lock);
+                        return slot;
+                    }
+                    lock.release();
+                }
+            } catch (OverlappingFileLockException e) {
+                // held by this JVM
+            } catch (IOException e) {
+                log.fine(String.format("Cannot lock export slot %s: %s", i, e));
+            }
+            ParseUtils.safeClose(file);
+        }
+        return null;
+    }
+}
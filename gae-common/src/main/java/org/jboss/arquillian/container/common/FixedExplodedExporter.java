@@ -3,10 +3,22 @@ package org.jboss.arquillian.container.common;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -15,6 +27,8 @@ import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
 import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.asset.ArchiveAsset;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.FileAsset;
 
 /**
  * This is a rip-off from ExplodedExporterDelegate. ;-)
@@ -25,21 +39,125 @@ class FixedExplodedExporter {
     private Archive archive;
     private File outputDirectory;
     private boolean explodeWars = true;
+    private int parallelism = 1;
+    private boolean cached;
+    private ExportCache cache;
+    private boolean links;
+    private File report;
+    private final Map<String, ExportStrategy> strategies = new ConcurrentHashMap<String, ExportStrategy>();
 
     FixedExplodedExporter(Archive archive, File root) {
+        this(archive, root, archive.getName());
+    }
+
+    FixedExplodedExporter(Archive archive, File root, String directoryName) {
         this.archive = archive;
-        this.outputDirectory = initializeOutputDirectory(root, archive.getName());
+        this.outputDirectory = initializeOutputDirectory(root, directoryName);
     }
 
     void setExplodeWars(boolean explodeWars) {
         this.explodeWars = explodeWars;
     }
 
+    /**
+     * Set the number of threads used to write assets.
+     * Anything above 1 switches to parallel export.
+     *
+     * @param parallelism the parallelism level
+     */
+    void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Reuse the existing output directory, only writing changed assets.
+     *
+     * @param cached the cached flag
+     */
+    void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    /**
+     * Hard link file backed assets to their source, where the filesystem allows it.
+     *
+     * @param links the links flag
+     */
+    void setLinks(boolean links) {
+        this.links = links;
+    }
+
+    /**
+     * Append the strategy used for every exported file to this report.
+     *
+     * @param report the report file, can be null
+     */
+    void setReport(File report) {
+        this.report = report;
+    }
+
+    /**
+     * Get the strategy used for every exported file, keyed by its relative path.
+     *
+     * @return the strategies
+     */
+    Map<String, ExportStrategy> getStrategies() {
+        return new TreeMap<String, ExportStrategy>(strategies);
+    }
+
     File export() {
-        doExport();
+        strategies.clear();
+        try {
+            if (cached) {
+                cache = new ExportCache(outputDirectory);
+            }
+
+            if (parallelism > 1) {
+                doParallelExport();
+            } else {
+                doExport();
+            }
+
+            if (cache != null) {
+                cache.commit();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot use export cache for " + outputDirectory, e);
+        } finally {
+            cache = null;
+        }
+        report();
         return outputDirectory;
     }
 
+    protected void report() {
+        // only summarized at INFO when a report was asked for
+        final Level level = (report != null) ? Level.INFO : Level.FINE;
+        if (log.isLoggable(level)) {
+            final Map<ExportStrategy, Integer> counts = new EnumMap<ExportStrategy, Integer>(ExportStrategy.class);
+            for (ExportStrategy strategy : strategies.values()) {
+                final Integer count = counts.get(strategy);
+                counts.put(strategy, (count != null) ? count + 1 : 1);
+            }
+            log.log(level, String.format("Exported %s to %s: %s", archive.getName(), outputDirectory, counts));
+        }
+
+        if (report != null) {
+            try {
+                final PrintWriter writer = new PrintWriter(new FileWriter(report, true));
+                try {
+                    for (Map.Entry<String, ExportStrategy> entry : getStrategies().entrySet()) {
+                        writer.println(entry.getValue() + "\t" + archive.getName() + "\t" + entry.getKey());
+                    }
+                } finally {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Cannot write export report " + report, e);
+            }
+        }
+    }
+
     protected void doExport() {
         if (log.isLoggable(Level.FINE)) {
             log.fine("Exporting archive - " + archive.getName());
@@ -48,6 +166,19 @@ class FixedExplodedExporter {
         processArchive("", archive);
     }
 
+    protected void doParallelExport() {
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Exporting archive - " + archive.getName() + ", parallelism - " + parallelism);
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ArchiveTask("", archive));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     protected void processArchive(String relativePath, Archive archive) {
         // Obtain the root
         final Node rootNode = archive.get(ArchivePaths.root());
@@ -85,6 +216,34 @@ class FixedExplodedExporter {
         }
     }
 
+    /**
+     * Create the directory skeleton for the node hierarchy,
+     * collecting asset writes and nested .war archives as tasks.
+     *
+     * @param relativePath the relative path
+     * @param node         the node
+     * @param tasks        the tasks
+     */
+    protected void collectNode(final String relativePath, final Node node, final List<RecursiveAction> tasks) {
+        final boolean isDirectory = (node.getAsset() == null);
+        final boolean explodeWar = explodeWars && isWar(node);
+
+        if (isDirectory || explodeWar) {
+            processNode(relativePath, node.getPath(), node, true);
+        }
+
+        if (explodeWar) {
+            ArchiveAsset war = (ArchiveAsset) node.getAsset();
+            tasks.add(new ArchiveTask(relativePath + node.getPath().get(), war.getArchive()));
+        } else if (isDirectory) {
+            for (Node child : node.getChildren()) {
+                collectNode(relativePath, child, tasks);
+            }
+        } else {
+            tasks.add(new AssetTask(relativePath, node));
+        }
+    }
+
     protected void processNode(String relativePath, ArchivePath path, Node node, boolean isDirectory) {
         // Get path to file
         final String assetFilePath = path.get();
@@ -95,7 +254,7 @@ class FixedExplodedExporter {
         // Get the assets parent parent directory and make sure it exists
         final File assetParent = assetFile.getParentFile();
         if (!assetParent.exists()) {
-            if (!assetParent.mkdirs()) {
+            if (!assetParent.mkdirs() && !assetParent.isDirectory()) {
                 throw new IllegalArgumentException("Failed to write asset.  Unable to create parent directory.");
             }
         }
@@ -103,10 +262,13 @@ class FixedExplodedExporter {
         // Handle directory and inner .war assets separately
         try {
             if (isDirectory) {
+                if (cache != null) {
+                    cache.directory(relativePath + assetFilePath);
+                }
                 // If doesn't already exist
                 if (!assetFile.exists()) {
                     // Attempt a create
-                    if (!assetFile.mkdirs()) {
+                    if (!assetFile.mkdirs() && !assetFile.isDirectory()) {
                         // Some error in writing
                         throw new IllegalArgumentException("Failed to write directory: " + assetFile.getAbsolutePath());
                     }
@@ -115,15 +277,20 @@ class FixedExplodedExporter {
             // Only handle non-directory assets, otherwise the path is handled above
             else {
                 try {
+                    final String relativeAssetPath = relativePath + assetFilePath;
+                    // Skip unchanged assets
+                    if (cache != null && cache.isUpToDate(relativeAssetPath, node.getAsset(), assetFile)) {
+                        if (log.isLoggable(Level.FINE)) {
+                            log.fine("Asset " + path.get() + " is up to date in " + assetFile.getAbsolutePath());
+                        }
+                        strategies.put(relativeAssetPath, ExportStrategy.CACHED);
+                        return;
+                    }
+                    final ExportStrategy strategy = writeAsset(node.getAsset(), assetFile);
                     if (log.isLoggable(Level.FINE)) {
-                        log.fine("Writing asset " + path.get() + " to " + assetFile.getAbsolutePath());
+                        log.fine("Wrote asset " + path.get() + " to " + assetFile.getAbsolutePath() + " [" + strategy + "]");
                     }
-                    // Get the asset streams
-                    final InputStream assetInputStream = node.getAsset().openStream();
-                    final FileOutputStream assetFileOutputStream = new FileOutputStream(assetFile);
-                    final BufferedOutputStream assetBufferedOutputStream = new BufferedOutputStream(assetFileOutputStream, 8192);
-                    // Write contents
-                    copyWithClose(assetInputStream, assetBufferedOutputStream);
+                    strategies.put(relativeAssetPath, strategy);
                 } catch (final Exception e) {
                     // Provide a more detailed exception than the outer block
                     throw new IllegalArgumentException("Failed to write asset " + path + " to " + assetFile, e);
@@ -136,6 +303,42 @@ class FixedExplodedExporter {
         }
     }
 
+    /**
+     * Write the asset, linking or copying file backed assets directly.
+     *
+     * @param asset     the asset
+     * @param assetFile the target file
+     * @return the strategy used
+     * @throws IOException for any I/O error
+     */
+    protected ExportStrategy writeAsset(Asset asset, File assetFile) throws IOException {
+        final Path target = assetFile.toPath();
+        // never write through an existing file, it might be a link to some asset's source
+        Files.deleteIfExists(target);
+
+        if (asset instanceof FileAsset) {
+            final Path source = ((FileAsset) asset).getSource().toPath();
+            if (links) {
+                try {
+                    Files.createLink(target, source);
+                    return ExportStrategy.LINK;
+                } catch (IOException | UnsupportedOperationException e) {
+                    if (log.isLoggable(Level.FINE)) {
+                        log.fine("Cannot link " + source + ", copying it instead: " + e);
+                    }
+                }
+            }
+            Files.copy(source, target);
+            return ExportStrategy.COPY;
+        }
+
+        final InputStream assetInputStream = asset.openStream();
+        final FileOutputStream assetFileOutputStream = new FileOutputStream(assetFile);
+        final BufferedOutputStream assetBufferedOutputStream = new BufferedOutputStream(assetFileOutputStream, 8192);
+        copyWithClose(assetInputStream, assetBufferedOutputStream);
+        return ExportStrategy.STREAM;
+    }
+
     private File initializeOutputDirectory(File baseDirectory, String directoryName) {
         // Create output directory
         final File outputDirectory = new File(baseDirectory, directoryName);
@@ -182,4 +385,40 @@ class FixedExplodedExporter {
             }
         }
     }
+
+    private class ArchiveTask extends RecursiveAction {
+        private final String relativePath;
+        private final Archive archive;
+
+        private ArchiveTask(String relativePath, Archive archive) {
+            this.relativePath = relativePath;
+            this.archive = archive;
+        }
+
+        protected void compute() {
+            final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+
+            // Create the directories first, then write the assets
+            final Node rootNode = archive.get(ArchivePaths.root());
+            for (Node child : rootNode.getChildren()) {
+                collectNode(relativePath, child, tasks);
+            }
+
+            invokeAll(tasks);
+        }
+    }
+
+    private class AssetTask extends RecursiveAction {
+        private final String relativePath;
+        private final Node node;
+
+        private AssetTask(String relativePath, Node node) {
+            this.relativePath = relativePath;
+            this.node = node;
+        }
+
+        protected void compute() {
+            processNode(relativePath, node.getPath(), node, false);
+        }
+    }
 }
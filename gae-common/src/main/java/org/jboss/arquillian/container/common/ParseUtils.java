@@ -23,13 +23,15 @@
 
 package org.jboss.arquillian.container.common;
 
+import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.InputStream;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 import org.jboss.shrinkwrap.api.Node;
 
@@ -46,58 +48,93 @@ public final class ParseUtils {
     public static final String THREADSAFE = "<threadsafe>";
     public static final String MODULE = "<module>";
 
+    private static final XMLInputFactory FACTORY = createInputFactory();
+
     ParseUtils() {
     }
 
+    /**
+     * Find the text of the first element matching each token, e.g. "&lt;module&gt;".
+     * Elements are matched by local name, so namespaces and prefixes are ignored;
+     * comments are skipped and CDATA sections are included in the text.
+     * The scan stops as soon as all tokens are found.
+     *
+     * @param xml    the xml node
+     * @param tokens the tokens
+     * @return token to trimmed text map, only holding found tokens
+     * @throws Exception for any error
+     */
     public static Map<String, String> parseTokens(Node xml, final String... tokens) throws Exception {
-        final Set<String> set = new LinkedHashSet<String>(Arrays.asList(tokens));
-        return parseTokens(xml, set);
+        final Map<String, String> names = new HashMap<String, String>();
+        for (String token : tokens) {
+            names.put(toElementName(token), token);
+        }
+        return parseTokens(xml, names);
+    }
+
+    static String toElementName(String token) {
+        String name = token;
+        if (name.startsWith("<")) {
+            name = name.substring(1);
+        }
+        if (name.endsWith(">")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        int colon = name.indexOf(':');
+        if (colon >= 0) {
+            name = name.substring(colon + 1);
+        }
+        return name;
     }
 
-    private static Map<String, String> parseTokens(Node xml, final Set<String> tokens) throws Exception {
+    private static Map<String, String> parseTokens(Node xml, final Map<String, String> names) throws Exception {
         final Map<String, String> results = new HashMap<String, String>();
-        InputStream is = xml.getAsset().openStream();
+        if (names.isEmpty()) {
+            return results;
+        }
+
+        InputStream is = new BufferedInputStream(xml.getAsset().openStream());
         try {
-            StringBuilder builder = new StringBuilder();
-            int x;
-            String token = null;
-            StringBuilder tokenBuilder = new StringBuilder();
-            while ((x = is.read()) != -1) {
-                char ch = (char) x;
-                if (token != null) {
-                    if (ch == '<') {
-                        results.put(token, tokenBuilder.toString());
-                        if (tokens.isEmpty()) {
-                            break;
-                        } else {
+            final XMLStreamReader reader = FACTORY.createXMLStreamReader(is);
+            try {
+                String token = null;
+                final StringBuilder text = new StringBuilder();
+                while (reader.hasNext()) {
+                    final int event = reader.next();
+                    if (token != null) {
+                        if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+                            text.append(reader.getText());
+                        } else if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT) {
+                            results.put(token, text.toString().trim());
+                            if (names.isEmpty()) {
+                                break;
+                            }
                             token = null;
-                            tokenBuilder.setLength(0); // reset builder
-                        }
-                    } else {
-                        tokenBuilder.append(ch);
-                    }
-                } else {
-                    builder.append(ch);
-                }
-                // check if we hit any token
-                if (token == null) {
-                    for (String t : tokens) {
-                        if (builder.toString().endsWith(t)) {
-                            token = t;
-                            break;
                         }
                     }
-                    if (token != null) {
-                        tokens.remove(token);
+                    if (token == null && event == XMLStreamConstants.START_ELEMENT) {
+                        token = names.remove(reader.getLocalName());
+                        text.setLength(0); // reset builder
                     }
                 }
+                return results;
+            } finally {
+                reader.close();
             }
-            return results;
         } finally {
             safeClose(is);
         }
     }
 
+    private static XMLInputFactory createInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
     static void safeClose(Closeable closeable) {
         if (closeable != null) {
             try {
@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Allocates free ports, so several servers can run on the same machine.
+ * <p/>
+ * A port is taken once it can be bound and its lock file, shared by all JVMs on the machine
+ * (e.g. Surefire forks), is locked. The lock is held until the reservation is closed,
+ * so nobody else picks the port between the bind test and the server start.
+ */
+public final class PortAllocator {
+    private static final Logger log = Logger.getLogger(PortAllocator.class.getName());
+
+    public static final String DEFAULT_RANGE = "8080-8999";
+
+    private static final Random random = new Random();
+
+    private PortAllocator() {
+    }
+
+    /**
+     * Reserve free ports.
+     *
+     * @param range the range, e.g. "8080-8999"
+     * @param count number of ports
+     * @return the reservation
+     * @throws IllegalStateException if there are not enough free ports
+     */
+    public static PortReservation reserve(String range, int count) {
+        final int[] bounds = parseRange(range);
+        final int size = bounds[1] - bounds[0] + 1;
+        final File locks = new File(System.getProperty("java.io.tmpdir"), "arquillian-gae-ports");
+        if (locks.mkdirs() == false && locks.isDirectory() == false) {
+            throw new IllegalStateException("Cannot create port lock directory " + locks);
+        }
+
+        final List<PortReservation.Lock> taken = new ArrayList<PortReservation.Lock>();
+        // random start, so concurrent JVMs don't all compete for the same ports
+        final int offset;
+        synchronized (random) {
+            offset = random.nextInt(size);
+        }
+        for (int i = 0; i < size && taken.size() < count; i++) {
+            final int port = bounds[0] + (offset + i) % size;
+            final PortReservation.Lock lock = tryLock(locks, port);
+            if (lock != null) {
+                if (isFree(port)) {
+                    taken.add(lock);
+                } else {
+                    lock.release();
+                }
+            }
+        }
+
+        final PortReservation reservation = new PortReservation(taken);
+        if (taken.size() < count) {
+            reservation.close();
+            throw new IllegalStateException(String.format("Cannot find %s free ports in %s", count, range));
+        }
+        log.info(String.format("Reserved ports %s", reservation));
+        return reservation;
+    }
+
+    static int[] parseRange(String range) {
+        final String[] split = range.trim().split("-");
+        try {
+            final int from = Integer.parseInt(split[0].trim());
+            final int to = (split.length > 1) ? Integer.parseInt(split[1].trim()) : from;
+            if (split.length > 2 || from <= 0 || to > 65535 || to < from) {
+                throw new IllegalArgumentException("Invalid port range: " + range);
+            }
+            return new int[]{from, to};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port range: " + range, e);
+        }
+    }
+
+    private static PortReservation.Lock tryLock(File locks, int port) {
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(new File(locks, port + ".lock"), "rw");
+            final FileChannel channel = file.getChannel();
+            final FileLock lock = channel.tryLock();
+            if (lock != null) {
+                return new PortReservation.Lock(port, file, lock);
+            }
+        } catch (OverlappingFileLockException e) {
+            // held by this JVM
+        } catch (IOException e) {
+            log.fine(String.format("Cannot lock port %s: %s", port, e));
+        }
+        ParseUtils.safeClose(file);
+        return null;
+    }
+
+    private static boolean isFree(int port) {
+        ServerSocket socket = null;
+        try {
+            socket = new ServerSocket();
+            socket.setReuseAddress(false);
+            socket.bind(new InetSocketAddress(port));
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            ParseUtils.safeClose(socket);
+        }
+    }
+}
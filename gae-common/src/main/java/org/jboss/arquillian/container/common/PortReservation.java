@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.Closeable;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ports reserved by PortAllocator, held until closed.
+ */
+public final class PortReservation implements Closeable {
+    private final List<Lock> locks;
+
+    PortReservation(List<Lock> locks) {
+        this.locks = locks;
+    }
+
+    /**
+     * The first reserved port.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return getPort(0);
+    }
+
+    public int getPort(int index) {
+        return locks.get(index).port;
+    }
+
+    public int size() {
+        return locks.size();
+    }
+
+    public void close() {
+        for (Lock lock : locks) {
+            lock.release();
+        }
+        locks.clear();
+    }
+
+    @Override
+    public String toString() {
+        final List<Integer> ports = new ArrayList<Integer>();
+        for (Lock lock : locks) {
+            ports.add(lock.port);
+        }
+        return ports.toString();
+    }
+
+    static class Lock {
+        private final int port;
+        private final RandomAccessFile file;
+        private final FileLock lock;
+
+        Lock(int port, RandomAccessFile file, FileLock lock) {
+            this.port = port;
+            this.file = file;
+            this.lock = lock;
+        }
+
+        void release() {
+            try {
+                lock.release();
+            } catch (Exception ignored) {
+            }
+            ParseUtils.safeClose(file);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drains the output of child processes from a single thread.
+ * <p/>
+ * Streams are polled with {@link InputStream#available()}, so one thread serves any number of
+ * processes instead of two blocking readers per process. Complete lines are echoed to the
+ * target stream, kept in a bounded buffer and handed to the listener as they arrive.
+ */
+public final class ProcessPump {
+    private static final Logger log = Logger.getLogger(ProcessPump.class.getName());
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final long MAX_IDLE = 50L; // ms
+    private static final int DEFAULT_CAPACITY = 500; // lines
+    private static final long EXIT_QUIET = 100L; // ms without output after exit, the pipe is drained
+    private static final long EXIT_GRACE = 2000L; // ms after exit, e.g. a grandchild holding the pipe
+
+    private static final ProcessPump instance = new ProcessPump();
+
+    private final List<Source> sources = new ArrayList<Source>();
+    private Thread thread;
+
+    private ProcessPump() {
+    }
+
+    public static ProcessPump getInstance() {
+        return instance;
+    }
+
+    /**
+     * Called on the pump thread for every line, must not block.
+     */
+    public interface LineListener {
+        void line(String line, boolean stderr);
+    }
+
+    public Handle pump(Process process, String name, LineListener listener) {
+        return pump(process, name, System.out, System.err, listener, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Start draining the process' stdout and stderr.
+     *
+     * @param process  the process
+     * @param name     the name, used as line prefix
+     * @param out      stdout target, can be null
+     * @param err      stderr target, can be null
+     * @param listener the listener, can be null
+     * @param capacity max lines kept
+     * @return the handle
+     */
+    public Handle pump(Process process, String name, PrintStream out, PrintStream err, LineListener listener, int capacity) {
+        final Handle handle = new Handle(capacity);
+        final Source stdout = new Source(process, process.getInputStream(), "[" + name + "] ", out, false, listener, handle);
+        final Source stderr = new Source(process, process.getErrorStream(), "[" + name + "] ", err, true, listener, handle);
+        handle.sources = new Source[]{stdout, stderr};
+        synchronized (sources) {
+            sources.add(stdout);
+            sources.add(stderr);
+            if (thread == null) {
+                thread = new Thread(new Runnable() {
+                    public void run() {
+                        loop();
+                    }
+                }, "ProcessPump");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            sources.notifyAll();
+        }
+        return handle;
+    }
+
+    private void loop() {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long idle = 1L;
+        while (true) {
+            final List<Source> snapshot;
+            synchronized (sources) {
+                if (sources.isEmpty()) {
+                    thread = null; // next pump() starts a new one
+                    return;
+                }
+                snapshot = new ArrayList<Source>(sources);
+            }
+
+            boolean progress = false;
+            for (Source source : snapshot) {
+                try {
+                    progress |= source.poll(buffer);
+                } catch (IOException e) {
+                    log.log(Level.FINE, "Cannot read process output.", e);
+                    source.done = true;
+                }
+                if (source.done) {
+                    remove(source);
+                }
+            }
+
+            if (progress) {
+                idle = 1L;
+            } else {
+                try {
+                    Thread.sleep(idle);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                idle = Math.min(idle * 2, MAX_IDLE);
+            }
+        }
+    }
+
+    private void remove(Source source) {
+        synchronized (sources) {
+            if (sources.remove(source) == false) {
+                return; // already closed
+            }
+        }
+        source.finish();
+    }
+
+    private static class Source {
+        private final Process process;
+        private final InputStream input;
+        private final String prefix;
+        private final PrintStream target;
+        private final boolean stderr;
+        private final LineListener listener;
+        private final Handle handle;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        private volatile boolean done;
+        private long exited; // nanos, 0 while running
+        private long lastRead; // nanos
+
+        private Source(Process process, InputStream input, String prefix, PrintStream target, boolean stderr, LineListener listener, Handle handle) {
+            this.process = process;
+            this.input = input;
+            this.prefix = prefix;
+            this.target = target;
+            this.stderr = stderr;
+            this.listener = listener;
+            this.handle = handle;
+        }
+
+        private boolean poll(byte[] buffer) throws IOException {
+            final int available = input.available();
+            if (available > 0) {
+                final int read = input.read(buffer, 0, Math.min(available, buffer.length));
+                if (read < 0) {
+                    done = true;
+                } else {
+                    consume(buffer, read);
+                    lastRead = System.nanoTime();
+                }
+                return true;
+            }
+            if (exited == 0L) {
+                if (isAlive(process)) {
+                    return false;
+                }
+                exited = lastRead = System.nanoTime();
+                return false;
+            }
+            // a blocking read until EOF would stall the pump if the pipe outlives the process,
+            // so keep polling until it's quiet, but never longer than the grace period
+            final long now = System.nanoTime();
+            if (now - lastRead >= TimeUnit.MILLISECONDS.toNanos(EXIT_QUIET) || now - exited >= TimeUnit.MILLISECONDS.toNanos(EXIT_GRACE)) {
+                done = true;
+                return true;
+            }
+            return false;
+        }
+
+        private void consume(byte[] buffer, int length) {
+            StringBuilder echo = null;
+            for (int i = 0; i < length; i++) {
+                if (buffer[i] == '\n') {
+                    final String text = newLine();
+                    if (target != null) {
+                        if (echo == null) {
+                            echo = new StringBuilder();
+                        }
+                        echo.append(prefix).append(text).append('\n');
+                    }
+                } else {
+                    line.write(buffer[i]);
+                }
+            }
+            if (echo != null) {
+                target.print(echo); // one write per chunk, not per line
+                target.flush();
+            }
+        }
+
+        private String newLine() {
+            String text = line.toString();
+            line.reset();
+            if (text.endsWith("\r")) {
+                text = text.substring(0, text.length() - 1);
+            }
+            handle.add(text);
+            if (listener != null) {
+                try {
+                    listener.line(text, stderr);
+                } catch (RuntimeException e) {
+                    log.log(Level.WARNING, "Line listener failed.", e);
+                }
+            }
+            return text;
+        }
+
+        private void finish() {
+            if (line.size() > 0) {
+                final String text = newLine();
+                if (target != null) {
+                    target.println(prefix + text);
+                }
+            }
+            ParseUtils.safeClose(input);
+            handle.latch.countDown();
+        }
+    }
+
+    private static boolean isAlive(Process process) {
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Pumped process.
+     */
+    public final class Handle {
+        private final Deque<String> lines = new ArrayDeque<String>();
+        private final int capacity;
+        private final CountDownLatch latch = new CountDownLatch(2);
+        private Source[] sources;
+
+        private Handle(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private synchronized void add(String line) {
+            if (lines.size() == capacity) {
+                lines.removeFirst();
+            }
+            lines.addLast(line);
+        }
+
+        /**
+         * The last lines, stdout and stderr in arrival order.
+         *
+         * @return the lines
+         */
+        public synchronized List<String> getLines() {
+            return new ArrayList<String>(lines);
+        }
+
+        /**
+         * Wait until both streams are drained.
+         *
+         * @param timeout timeout in millis
+         * @return true if drained, false on timeout
+         * @throws InterruptedException if interrupted
+         */
+        public boolean await(long timeout) throws InterruptedException {
+            return latch.await(timeout, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Stop draining, remaining output is discarded.
+         */
+        public void close() {
+            for (Source source : sources) {
+                remove(source);
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Client side record of what was last uploaded for an app id, module and version.
+ * <p/>
+ * Every file is kept as size, last modified and hash. A scan only hashes files whose size or
+ * last modified changed, and reports the delta against the last successful upload.
+ * Together with the export cache, which leaves unchanged files untouched, the scan
+ * scales with the size of the change.
+ */
+public final class UploadManifest {
+    private static final String SUFFIX = ".manifest";
+
+    private final File file;
+    private final Map<String, Entry> previous = new TreeMap<String, Entry>();
+    private final Map<String, Entry> current = new TreeMap<String, Entry>();
+
+    private UploadManifest(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the manifest of the last successful upload.
+     *
+     * @param directory manifest directory
+     * @param appId     the app id
+     * @param module    the module
+     * @param version   the version
+     * @return the manifest, empty if there is none yet
+     * @throws IOException for any I/O error
+     */
+    public static UploadManifest load(File directory, String appId, String module, String version) throws IOException {
+        final String name = String.format("%s_%s_%s", appId, module, version).replaceAll("[^A-Za-z0-9._-]", "-");
+        final UploadManifest manifest = new UploadManifest(new File(directory, name + SUFFIX));
+        if (manifest.file.isFile()) {
+            final Properties properties = new Properties();
+            final InputStream is = new FileInputStream(manifest.file);
+            try {
+                properties.load(is);
+            } finally {
+                ParseUtils.safeClose(is);
+            }
+            for (String path : properties.stringPropertyNames()) {
+                final Entry entry = Entry.parse(properties.getProperty(path));
+                if (entry != null) {
+                    manifest.previous.put(path, entry);
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Fingerprint a directory, without any manifest.
+     *
+     * @param root the directory
+     * @return the fingerprint
+     * @throws IOException for any I/O error
+     */
+    public static String fingerprint(File root) throws IOException {
+        final UploadManifest manifest = new UploadManifest(null);
+        manifest.scan(root);
+        return manifest.getFingerprint();
+    }
+
+    /**
+     * Scan the exploded application.
+     *
+     * @param root the application directory
+     * @return the delta against the last successful upload
+     * @throws IOException for any I/O error
+     */
+    public Delta scan(File root) throws IOException {
+        current.clear();
+        final Delta delta = new Delta();
+        scan(root, "", delta);
+        for (String path : previous.keySet()) {
+            if (current.containsKey(path) == false) {
+                delta.removed.add(path);
+            }
+        }
+        return delta;
+    }
+
+    private void scan(File directory, String prefix, Delta delta) throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot list " + directory);
+        }
+        for (File file : files) {
+            final String path = prefix + file.getName();
+            if (file.isDirectory()) {
+                scan(file, path + "/", delta);
+                continue;
+            }
+
+            final long size = file.length();
+            final long lastModified = file.lastModified();
+            final Entry old = previous.get(path);
+            if (old != null && old.size == size && old.lastModified == lastModified) {
+                current.put(path, old); // no need to hash
+                delta.unchanged++;
+                continue;
+            }
+
+            final Entry entry = new Entry(size, lastModified, hash(file));
+            current.put(path, entry);
+            if (old == null) {
+                delta.added.add(path);
+                delta.bytes += size;
+            } else if (old.hash.equals(entry.hash) == false) {
+                delta.changed.add(path);
+                delta.bytes += size;
+            } else {
+                delta.unchanged++; // touched only
+            }
+        }
+    }
+
+    /**
+     * Fingerprint of the scanned content, independent of timestamps.
+     *
+     * @return the fingerprint
+     */
+    public String getFingerprint() {
+        final MessageDigest digest = newDigest();
+        final Charset utf8 = Charset.forName("UTF-8");
+        for (Map.Entry<String, Entry> entry : current.entrySet()) {
+            digest.update(entry.getKey().getBytes(utf8));
+            digest.update((byte) '=');
+            digest.update(entry.getValue().hash.getBytes(utf8));
+            digest.update((byte) '\n');
+        }
+        return ExportCache.toHex(digest.digest());
+    }
+
+    /**
+     * Record the scanned content as uploaded, call only after a successful upload.
+     *
+     * @throws IOException for any I/O error
+     */
+    public void store() throws IOException {
+        if (file == null) {
+            throw new IllegalStateException("Manifest has no file");
+        }
+        final File directory = file.getParentFile();
+        if (directory.mkdirs() == false && directory.isDirectory() == false) {
+            throw new IOException("Cannot create manifest directory " + directory);
+        }
+        final Properties properties = new Properties();
+        for (Map.Entry<String, Entry> entry : current.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        final File tmp = new File(directory, file.getName() + ".tmp");
+        final OutputStream os = new FileOutputStream(tmp);
+        try {
+            properties.store(os, "Arquillian GAE upload manifest");
+        } finally {
+            ParseUtils.safeClose(os);
+        }
+        if ((file.exists() && file.delete() == false) || tmp.renameTo(file) == false) {
+            throw new IOException("Cannot store manifest " + file);
+        }
+        previous.clear();
+        previous.putAll(current);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hash(File file) throws IOException {
+        final MessageDigest digest = newDigest();
+        final InputStream is = new FileInputStream(file);
+        try {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            ParseUtils.safeClose(is);
+        }
+        return ExportCache.toHex(digest.digest());
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        private Entry(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        private static Entry parse(String value) {
+            final String[] split = value.split(":");
+            if (split.length != 3) {
+                return null;
+            }
+            try {
+                return new Entry(Long.parseLong(split[0]), Long.parseLong(split[1]), split[2]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return size + ":" + lastModified + ":" + hash;
+        }
+    }
+
+    /**
+     * Difference to the last successful upload.
+     */
+    public static final class Delta {
+        private final List<String> added = new ArrayList<String>();
+        private final List<String> changed = new ArrayList<String>();
+        private final List<String> removed = new ArrayList<String>();
+        private int unchanged;
+        private long bytes;
+
+        public List<String> getAdded() {
+            return Collections.unmodifiableList(added);
+        }
+
+        public List<String> getChanged() {
+            return Collections.unmodifiableList(changed);
+        }
+
+        public List<String> getRemoved() {
+            return Collections.unmodifiableList(removed);
+        }
+
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        /**
+         * @return size of added and changed files
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s added, %s changed, %s removed, %s unchanged, %s bytes to upload",
+                added.size(), changed.size(), removed.size(), unchanged, bytes);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AppLocationReaper}.
+ */
+public class AppLocationReaperTestCase {
+    private File parent;
+
+    @Before
+    public void setUp() throws Exception {
+        parent = Files.createTempDirectory("reaper").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AppEngineCommonContainer.deleteRecursively(parent);
+    }
+
+    @Test
+    public void testRenamesAside() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final FlakyReaper reaper = new FlakyReaper(0, release);
+        final File app = app("test.war");
+
+        reaper.reap(app);
+        Assert.assertFalse(app.exists());
+        Assert.assertEquals(1, reaped().length);
+        Assert.assertTrue(app("test.war").isDirectory()); // location is free right away
+
+        release.countDown();
+        awaitReaped(0);
+        reaper.drain();
+    }
+
+    @Test
+    public void testRetries() throws Exception {
+        final FlakyReaper reaper = new FlakyReaper(2, null);
+        reaper.reap(app("test.war"));
+        awaitReaped(0);
+        Assert.assertEquals(3, reaper.total.get());
+        reaper.drain();
+    }
+
+    @Test
+    public void testDrainDeletesLeftovers() throws Exception {
+        final FlakyReaper reaper = new FlakyReaper(3, null); // more failures than attempts
+        reaper.reap(app("test.war"));
+        awaitAttempts(reaper, 3);
+        Thread.sleep(100); // let it give up
+        Assert.assertEquals(1, reaped().length);
+
+        reaper.drain();
+        Assert.assertEquals(0, reaped().length);
+        Assert.assertEquals(4, reaper.total.get());
+    }
+
+    @Test
+    public void testDrainStopsTheReaperFirst() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final FlakyReaper reaper = new FlakyReaper(0, release);
+        reaper.reap(app("first.war"));
+        reaper.reap(app("second.war"));
+        awaitAttempts(reaper, 1);
+
+        final Thread drain = new Thread(new Runnable() {
+            public void run() {
+                reaper.drain();
+            }
+        });
+        drain.start();
+        Thread.sleep(50);
+        Assert.assertTrue(drain.isAlive()); // waits for the delete in progress
+        Assert.assertEquals(1, reaper.concurrent.get());
+
+        release.countDown();
+        drain.join(5000);
+        Assert.assertFalse(drain.isAlive());
+        Assert.assertEquals(0, reaped().length);
+        Assert.assertEquals(1, reaper.maxConcurrent.get());
+    }
+
+    private File app(String name) throws IOException {
+        final File app = new File(parent, name);
+        Assert.assertTrue(new File(app, "WEB-INF").mkdirs());
+        Files.write(new File(app, "WEB-INF/web.xml").toPath(), "<web-app/>".getBytes("UTF-8"));
+        return app;
+    }
+
+    private File[] reaped() {
+        return parent.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.getName().contains(AppLocationReaper.REAPED);
+            }
+        });
+    }
+
+    private void awaitReaped(int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (reaped().length != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, reaped().length);
+    }
+
+    private static void awaitAttempts(FlakyReaper reaper, int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (reaper.total.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(reaper.total.get() >= count);
+    }
+
+    /**
+     * Fails the first deletes of every path, and optionally blocks until released.
+     */
+    private static class FlakyReaper extends AppLocationReaper {
+        private final int failures;
+        private final CountDownLatch release;
+        private final Map<Path, AtomicInteger> attempts = new ConcurrentHashMap<Path, AtomicInteger>();
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger concurrent = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        private FlakyReaper(int failures, CountDownLatch release) {
+            super(3, 1L);
+            this.failures = failures;
+            this.release = release;
+        }
+
+        @Override
+        void remove(Path path) throws IOException {
+            maxConcurrent.set(Math.max(maxConcurrent.get(), concurrent.incrementAndGet()));
+            try {
+                total.incrementAndGet();
+                AtomicInteger count = attempts.get(path);
+                if (count == null) {
+                    attempts.put(path, count = new AtomicInteger());
+                }
+                if (count.incrementAndGet() <= failures) {
+                    throw new IOException("Cannot delete " + path);
+                }
+                if (release != null) {
+                    // like a delete that doesn't react to interrupts, but keeps the flag
+                    boolean interrupted = false;
+                    while (true) {
+                        try {
+                            if (release.await(5, TimeUnit.SECONDS)) {
+                                break;
+                            }
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.remove(path);
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ExportCache}.
+ */
+public class ExportCacheTestCase {
+    private File parent;
+    private File root;
+
+    @Before
+    public void setUp() throws Exception {
+        parent = Files.createTempDirectory("export-cache").toFile();
+        root = new File(parent, "test.war");
+        Assert.assertTrue(root.mkdir());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AppEngineCommonContainer.deleteRecursively(parent);
+    }
+
+    @Test
+    public void testUnchangedAssetIsUpToDate() throws Exception {
+        final Asset asset = new StringAsset("<web-app/>");
+        export(asset);
+
+        final ExportCache cache = new ExportCache(root);
+        Assert.assertTrue(cache.isUpToDate("/WEB-INF/web.xml", asset, new File(root, "WEB-INF/web.xml")));
+        cache.directory("/WEB-INF");
+        cache.commit();
+    }
+
+    @Test
+    public void testChangedAssetIsNotUpToDate() throws Exception {
+        export(new StringAsset("<web-app/>"));
+
+        final ExportCache cache = new ExportCache(root);
+        Assert.assertFalse(cache.isUpToDate("/WEB-INF/web.xml", new StringAsset("<web-app version=\"3.0\"/>"), new File(root, "WEB-INF/web.xml")));
+    }
+
+    @Test
+    public void testModifiedFileIsNotUpToDate() throws Exception {
+        final Asset asset = new StringAsset("<web-app/>");
+        export(asset);
+
+        final File file = new File(root, "WEB-INF/web.xml");
+        write(file, "<web-app></web-app>");
+
+        final ExportCache cache = new ExportCache(root);
+        Assert.assertFalse(cache.isUpToDate("/WEB-INF/web.xml", asset, file));
+    }
+
+    @Test
+    public void testCommitRemovesUntrackedFiles() throws Exception {
+        final Asset asset = new StringAsset("<web-app/>");
+        export(asset);
+
+        // removed from the archive, and written by the server
+        write(new File(root, "index.html"), "<html/>");
+        write(new File(root, "WEB-INF/appengine-generated/local_db.bin"), "data");
+
+        final ExportCache cache = new ExportCache(root);
+        cache.directory("/WEB-INF");
+        cache.isUpToDate("/WEB-INF/web.xml", asset, new File(root, "WEB-INF/web.xml"));
+        cache.commit();
+
+        Assert.assertTrue(new File(root, "WEB-INF/web.xml").isFile());
+        Assert.assertFalse(new File(root, "index.html").exists());
+        Assert.assertFalse(new File(root, "WEB-INF/appengine-generated").exists());
+    }
+
+    @Test
+    public void testMissingIndexClearsDirectory() throws Exception {
+        write(new File(root, "leftover.txt"), "x");
+
+        new ExportCache(root).commit();
+
+        Assert.assertEquals(0, root.list().length);
+        Assert.assertTrue(new File(parent, "test.war.export-index").isFile());
+    }
+
+    @Test
+    public void testPurgeStale() throws Exception {
+        export(new StringAsset("<web-app/>"));
+
+        ExportCache.markStale(root);
+        Assert.assertTrue(new File(parent, "test.war.export-stale").isFile());
+        ExportCache.purgeStale();
+
+        Assert.assertFalse(root.exists());
+        Assert.assertFalse(new File(parent, "test.war.export-index").exists());
+        Assert.assertFalse(new File(parent, "test.war.export-stale").exists());
+    }
+
+    @Test
+    public void testReusedStaleIsKept() throws Exception {
+        final Asset asset = new StringAsset("<web-app/>");
+        export(asset);
+
+        ExportCache.markStale(root);
+        export(asset);
+        ExportCache.purgeStale();
+
+        Assert.assertTrue(new File(root, "WEB-INF/web.xml").isFile());
+        Assert.assertFalse(new File(parent, "test.war.export-stale").exists());
+    }
+
+    private void export(Asset asset) throws IOException {
+        final ExportCache cache = new ExportCache(root);
+        final File file = new File(root, "WEB-INF/web.xml");
+        cache.directory("/WEB-INF");
+        if (cache.isUpToDate("/WEB-INF/web.xml", asset, file) == false) {
+            write(file, ((StringAsset) asset).getSource());
+        }
+        cache.commit();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(content.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ExportRoot}.
+ */
+public class ExportRootTestCase {
+    private File slots;
+
+    @Before
+    public void setUp() throws Exception {
+        slots = new File(Files.createTempDirectory("export-root").toFile(), "slots");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AppEngineCommonContainer.deleteRecursively(slots.getParentFile());
+    }
+
+    @Test
+    public void testSlotsAreExclusive() throws Exception {
+        final File first = ExportRoot.take(slots);
+        final File second = ExportRoot.take(slots);
+        Assert.assertEquals(new File(slots, "0"), first);
+        Assert.assertEquals(new File(slots, "1"), second);
+        Assert.assertTrue(first.isDirectory());
+        Assert.assertTrue(second.isDirectory());
+    }
+
+    @Test
+    public void testRootIsStable() throws Exception {
+        final File root = ExportRoot.get();
+        Assert.assertEquals(root, ExportRoot.get());
+        Assert.assertTrue(root.isDirectory());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParseUtils}.
+ */
+public class ParseUtilsTestCase {
+
+    @Test
+    public void testPlainDescriptor() throws Exception {
+        final Map<String, String> tokens = parse(
+            "<appengine-web-app><application>foo</application><version>2</version><threadsafe>true</threadsafe></appengine-web-app>",
+            ParseUtils.APPLICATION, ParseUtils.VERSION, ParseUtils.THREADSAFE);
+        Assert.assertEquals("foo", tokens.get(ParseUtils.APPLICATION));
+        Assert.assertEquals("2", tokens.get(ParseUtils.VERSION));
+        Assert.assertEquals("true", tokens.get(ParseUtils.THREADSAFE));
+    }
+
+    @Test
+    public void testNamespacedDescriptor() throws Exception {
+        final Map<String, String> tokens = parse(
+            "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<appengine-web-app xmlns=\"http://appengine.google.com/ns/1.0\">\n" +
+            "  <application>foo</application>\n" +
+            "  <ae:module xmlns:ae=\"http://appengine.google.com/ns/1.0\">bar</ae:module>\n" +
+            "</appengine-web-app>",
+            ParseUtils.APPLICATION, ParseUtils.MODULE);
+        Assert.assertEquals("foo", tokens.get(ParseUtils.APPLICATION));
+        Assert.assertEquals("bar", tokens.get(ParseUtils.MODULE));
+    }
+
+    @Test
+    public void testCommentInsideElement() throws Exception {
+        final Map<String, String> tokens = parse(
+            "<appengine-web-app><application>fo<!-- <application>x</application> -->o</application></appengine-web-app>",
+            ParseUtils.APPLICATION);
+        Assert.assertEquals("foo", tokens.get(ParseUtils.APPLICATION));
+    }
+
+    @Test
+    public void testCommentedOutElementIsIgnored() throws Exception {
+        final Map<String, String> tokens = parse(
+            "<appengine-web-app><!-- <version>1</version> --><version>2</version></appengine-web-app>",
+            ParseUtils.VERSION);
+        Assert.assertEquals("2", tokens.get(ParseUtils.VERSION));
+    }
+
+    @Test
+    public void testCDataText() throws Exception {
+        final Map<String, String> tokens = parse(
+            "<appengine-web-app><application> <![CDATA[f<o>o]]> </application></appengine-web-app>",
+            ParseUtils.APPLICATION);
+        Assert.assertEquals("f<o>o", tokens.get(ParseUtils.APPLICATION));
+    }
+
+    @Test
+    public void testMissingElement() throws Exception {
+        final Map<String, String> tokens = parse(
+            "<appengine-web-app><application>foo</application></appengine-web-app>",
+            ParseUtils.APPLICATION, ParseUtils.VERSION);
+        Assert.assertEquals("foo", tokens.get(ParseUtils.APPLICATION));
+        Assert.assertFalse(tokens.containsKey(ParseUtils.VERSION));
+    }
+
+    @Test
+    public void testFirstOccurrenceOnly() throws Exception {
+        final Map<String, String> tokens = parse(
+            "<application><module><web><web-uri>a.war</web-uri></web></module><module><web><web-uri>b.war</web-uri></web></module></application>",
+            "<web-uri>");
+        Assert.assertEquals("a.war", tokens.get("<web-uri>"));
+        Assert.assertEquals(1, tokens.size());
+    }
+
+    private static Map<String, String> parse(String xml, String... tokens) throws Exception {
+        return ParseUtils.parseTokens(new StringNode(xml), tokens);
+    }
+
+    private static class StringNode implements Node {
+        private final Asset asset;
+
+        private StringNode(String xml) {
+            this.asset = new StringAsset(xml);
+        }
+
+        public Asset getAsset() {
+            return asset;
+        }
+
+        public Set<Node> getChildren() {
+            return Collections.emptySet();
+        }
+
+        public ArchivePath getPath() {
+            return ArchivePaths.create(ParseUtils.APPENGINE_WEB_XML);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PortAllocator}.
+ */
+public class PortAllocatorTestCase {
+    private static final String RANGE = "41000-41009";
+
+    @Test
+    public void testParseRange() {
+        Assert.assertArrayEquals(new int[]{8080, 8999}, PortAllocator.parseRange("8080-8999"));
+        Assert.assertArrayEquals(new int[]{9000, 9010}, PortAllocator.parseRange(" 9000 - 9010 "));
+        Assert.assertArrayEquals(new int[]{9000, 9000}, PortAllocator.parseRange("9000"));
+    }
+
+    @Test
+    public void testParseInvalidRange() {
+        for (String range : new String[]{"", "abc", "9000-8000", "0-10", "1-2-3", "65000-70000"}) {
+            try {
+                PortAllocator.parseRange(range);
+                Assert.fail("Expected invalid range: " + range);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testReservationsDoNotOverlap() {
+        final PortReservation first = PortAllocator.reserve(RANGE, 3);
+        try {
+            final PortReservation second = PortAllocator.reserve(RANGE, 3);
+            try {
+                final Set<Integer> ports = new HashSet<Integer>();
+                addPorts(ports, first);
+                addPorts(ports, second);
+                Assert.assertEquals(6, ports.size());
+                for (int port : ports) {
+                    Assert.assertTrue(port >= 41000 && port <= 41009);
+                }
+            } finally {
+                second.close();
+            }
+        } finally {
+            first.close();
+        }
+    }
+
+    @Test
+    public void testClosedPortsAreReused() {
+        final PortReservation first = PortAllocator.reserve("41010-41011", 2);
+        final Set<Integer> ports = new HashSet<Integer>();
+        addPorts(ports, first);
+        first.close();
+        Assert.assertEquals(0, first.size());
+
+        final PortReservation second = PortAllocator.reserve("41010-41011", 2);
+        try {
+            final Set<Integer> reused = new HashSet<Integer>();
+            addPorts(reused, second);
+            Assert.assertEquals(ports, reused);
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    public void testExhaustedRange() {
+        final PortReservation reservation = PortAllocator.reserve("41020-41021", 2);
+        try {
+            PortAllocator.reserve("41020-41021", 1);
+            Assert.fail("Expected no free ports");
+        } catch (IllegalStateException expected) {
+        } finally {
+            reservation.close();
+        }
+    }
+
+    @Test
+    public void testBoundPortIsSkipped() throws Exception {
+        final ServerSocket socket = new ServerSocket();
+        try {
+            socket.bind(new InetSocketAddress(41030));
+            final PortReservation reservation = PortAllocator.reserve("41030-41031", 1);
+            try {
+                Assert.assertEquals(41031, reservation.getPort());
+            } finally {
+                reservation.close();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static void addPorts(Set<Integer> ports, PortReservation reservation) {
+        for (int i = 0; i < reservation.size(); i++) {
+            ports.add(reservation.getPort(i));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ProcessPump}.
+ */
+public class ProcessPumpTestCase {
+    private static final long TIMEOUT = 10000L;
+
+    @Test
+    public void testExitDetection() throws Exception {
+        final ProcessPump.Handle handle = pump("echo a; echo b", 10, null);
+        Assert.assertTrue(handle.await(TIMEOUT));
+        Assert.assertEquals(Arrays.asList("a", "b"), handle.getLines());
+    }
+
+    @Test
+    public void testGrandchildHoldingPipe() throws Exception {
+        // the background sleep inherits stdout, so the pipe only hits EOF when it exits
+        final ProcessPump.Handle handle = pump("echo a; sleep 10 & echo b", 10, null);
+        final long start = System.currentTimeMillis();
+        Assert.assertTrue(handle.await(TIMEOUT));
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000L);
+        Assert.assertEquals(Arrays.asList("a", "b"), handle.getLines());
+    }
+
+    @Test
+    public void testPartialLastLine() throws Exception {
+        final ProcessPump.Handle handle = pump("printf 'a\\r\\nb'", 10, null);
+        Assert.assertTrue(handle.await(TIMEOUT));
+        Assert.assertEquals(Arrays.asList("a", "b"), handle.getLines());
+    }
+
+    @Test
+    public void testCapacity() throws Exception {
+        final ProcessPump.Handle handle = pump("for i in 1 2 3 4 5 6 7 8 9 10; do echo $i; done", 3, null);
+        Assert.assertTrue(handle.await(TIMEOUT));
+        Assert.assertEquals(Arrays.asList("8", "9", "10"), handle.getLines());
+    }
+
+    @Test
+    public void testListener() throws Exception {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+        final ProcessPump.Handle handle = pump("echo out; echo err 1>&2", 10, new ProcessPump.LineListener() {
+            public void line(String line, boolean stderr) {
+                lines.add((stderr ? "2:" : "1:") + line);
+            }
+        });
+        Assert.assertTrue(handle.await(TIMEOUT));
+        Assert.assertTrue(lines.contains("1:out"));
+        Assert.assertTrue(lines.contains("2:err"));
+        Assert.assertEquals(2, lines.size());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        final Process process = start("sleep 30");
+        try {
+            final ProcessPump.Handle handle = ProcessPump.getInstance().pump(process, "test", null, null, null, 10);
+            Assert.assertFalse(handle.await(200L));
+            handle.close();
+            Assert.assertTrue(handle.await(0L));
+        } finally {
+            process.destroy();
+        }
+    }
+
+    private static ProcessPump.Handle pump(String script, int capacity, ProcessPump.LineListener listener) throws Exception {
+        return ProcessPump.getInstance().pump(start(script), "test", null, null, listener, capacity);
+    }
+
+    private static Process start(String script) throws Exception {
+        return new ProcessBuilder("sh", "-c", script).start();
+    }
+}
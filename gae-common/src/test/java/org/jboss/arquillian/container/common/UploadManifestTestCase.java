@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link UploadManifest}.
+ */
+public class UploadManifestTestCase {
+    private File parent;
+    private File app;
+    private File manifests;
+
+    @Before
+    public void setUp() throws Exception {
+        parent = Files.createTempDirectory("upload-manifest").toFile();
+        app = new File(parent, "app");
+        manifests = new File(parent, "manifests");
+        write(new File(app, "index.html"), "<html/>");
+        write(new File(app, "WEB-INF/web.xml"), "<web-app/>");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AppEngineCommonContainer.deleteRecursively(parent);
+    }
+
+    @Test
+    public void testFirstScanAddsEverything() throws Exception {
+        final UploadManifest.Delta delta = load().scan(app);
+        Assert.assertEquals(Arrays.asList("WEB-INF/web.xml", "index.html"), sorted(delta.getAdded()));
+        Assert.assertEquals(17, delta.getBytes());
+        Assert.assertFalse(delta.isEmpty());
+    }
+
+    @Test
+    public void testStoredManifestRoundTrip() throws Exception {
+        final UploadManifest first = load();
+        first.scan(app);
+        first.store();
+
+        final UploadManifest second = load();
+        final UploadManifest.Delta delta = second.scan(app);
+        Assert.assertTrue(delta.isEmpty());
+        Assert.assertEquals(2, delta.getUnchanged());
+        Assert.assertEquals(0, delta.getBytes());
+        Assert.assertEquals(first.getFingerprint(), second.getFingerprint());
+    }
+
+    @Test
+    public void testDelta() throws Exception {
+        final UploadManifest first = load();
+        first.scan(app);
+        first.store();
+
+        final File index = new File(app, "index.html");
+        write(index, "<html><body/></html>");
+        index.setLastModified(index.lastModified() + 2000L);
+        final File webXml = new File(app, "WEB-INF/web.xml");
+        webXml.setLastModified(webXml.lastModified() + 2000L); // touched only
+        write(new File(app, "WEB-INF/appengine-web.xml"), "<appengine-web-app/>");
+
+        final UploadManifest.Delta delta = load().scan(app);
+        Assert.assertEquals(Collections.singletonList("WEB-INF/appengine-web.xml"), delta.getAdded());
+        Assert.assertEquals(Collections.singletonList("index.html"), delta.getChanged());
+        Assert.assertTrue(delta.getRemoved().isEmpty());
+        Assert.assertEquals(1, delta.getUnchanged());
+        Assert.assertEquals(20 + 20, delta.getBytes());
+    }
+
+    @Test
+    public void testRemoved() throws Exception {
+        final UploadManifest first = load();
+        first.scan(app);
+        first.store();
+
+        Assert.assertTrue(new File(app, "index.html").delete());
+
+        final UploadManifest.Delta delta = load().scan(app);
+        Assert.assertEquals(Collections.singletonList("index.html"), delta.getRemoved());
+    }
+
+    @Test
+    public void testFingerprintIgnoresTimestamps() throws Exception {
+        final String fingerprint = UploadManifest.fingerprint(app);
+
+        final File webXml = new File(app, "WEB-INF/web.xml");
+        webXml.setLastModified(webXml.lastModified() + 2000L);
+        Assert.assertEquals(fingerprint, UploadManifest.fingerprint(app));
+
+        write(webXml, "<web-app version=\"3.0\"/>");
+        Assert.assertFalse(fingerprint.equals(UploadManifest.fingerprint(app)));
+    }
+
+    @Test
+    public void testManifestPerVersion() throws Exception {
+        final UploadManifest first = load();
+        first.scan(app);
+        first.store();
+
+        final UploadManifest other = UploadManifest.load(manifests, "app-id", "default", "2");
+        Assert.assertEquals(2, other.scan(app).getAdded().size());
+    }
+
+    private UploadManifest load() throws IOException {
+        return UploadManifest.load(manifests, "app-id", "default", "1");
+    }
+
+    private static List<String> sorted(List<String> list) {
+        final List<String> copy = new ArrayList<String>(list);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(content.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+}
@@ -34,7 +34,7 @@ import org.jboss.arquillian.container.common.AppEngineCommonConfiguration;
 public class AppEngineEmbeddedConfiguration extends AppEngineCommonConfiguration {
     private String bindAddress = DevAppServer.DEFAULT_HTTP_ADDRESS;
 
-    private int bindHttpPort = DevAppServer.DEFAULT_HTTP_PORT;
+    private int bindHttpPort = DevAppServer.DEFAULT_HTTP_PORT; // 0 == allocate a free port
 
     public int getBindHttpPort() {
         return bindHttpPort;
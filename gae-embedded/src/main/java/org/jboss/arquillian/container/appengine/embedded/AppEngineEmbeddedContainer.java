@@ -32,7 +32,10 @@ import com.google.appengine.tools.development.AppContext;
 import com.google.appengine.tools.development.DevAppServer;
 import org.jboss.arquillian.container.appengine.embedded.hack.AppEngineHack;
 import org.jboss.arquillian.container.appengine.embedded.hack.DevAppServerFactoryHack;
+import org.jboss.arquillian.container.common.AppEngineCommonConfiguration;
 import org.jboss.arquillian.container.common.AppEngineCommonContainer;
+import org.jboss.arquillian.container.common.PortAllocator;
+import org.jboss.arquillian.container.common.PortReservation;
 import org.jboss.arquillian.container.spi.client.container.DeploymentException;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.HTTPContext;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
@@ -47,11 +50,18 @@ import org.jboss.shrinkwrap.api.Archive;
 public class AppEngineEmbeddedContainer extends AppEngineCommonContainer<AppEngineEmbeddedConfiguration> {
     private AppEngineEmbeddedConfiguration containerConfig;
     private DevAppServer server;
+    private PortReservation ports;
+    private int port;
 
     public Class<AppEngineEmbeddedConfiguration> getConfigurationClass() {
         return AppEngineEmbeddedConfiguration.class;
     }
 
+    @Override
+    protected AppEngineCommonConfiguration getCommonConfiguration() {
+        return containerConfig;
+    }
+
     public void setup(AppEngineEmbeddedConfiguration configuration) {
         this.containerConfig = configuration;
     }
@@ -63,9 +73,14 @@ public class AppEngineEmbeddedContainer extends AppEngineCommonContainer<AppEngi
 
     protected ProtocolMetaData doDeploy(Archive<?> archive) throws DeploymentException {
         try {
+            port = containerConfig.getBindHttpPort();
+            if (port == 0) {
+                ports = PortAllocator.reserve(containerConfig.getPortRange(), 1);
+                port = ports.getPort();
+            }
             server = AccessController.doPrivileged(new PrivilegedExceptionAction<DevAppServer>() {
                 public DevAppServer run() throws Exception {
-                    return DevAppServerFactoryHack.createDevAppServer(getAppLocation(), containerConfig.getBindAddress(), containerConfig.getBindHttpPort());
+                    return DevAppServerFactoryHack.createDevAppServer(getAppLocation(), containerConfig.getBindAddress(), port);
                 }
             });
             Map properties = System.getProperties();
@@ -74,13 +89,14 @@ public class AppEngineEmbeddedContainer extends AppEngineCommonContainer<AppEngi
             server.start();
         } catch (Exception e) {
             server = null;
+            releasePorts();
             deleteAppLocation();
 
             throw new DeploymentException("Error starting AppEngine.", e);
         }
 
         try {
-            setup("start", getAppLocation(), containerConfig.getBindHttpPort(), containerConfig.getBindAddress());
+            setup("start", getAppLocation(), port, containerConfig.getBindAddress());
         } catch (Exception e) {
             shutdownServer();
             deleteAppLocation();
@@ -89,7 +105,7 @@ public class AppEngineEmbeddedContainer extends AppEngineCommonContainer<AppEngi
         }
 
         try {
-            HTTPContext httpContext = new HTTPContext(containerConfig.getBindAddress(), containerConfig.getBindHttpPort());
+            HTTPContext httpContext = new HTTPContext(containerConfig.getBindAddress(), port);
             AppContext context = server.getAppContext();
             WebAppContextUtil wctx = new WebAppContextUtil(context.getContainerContext());
             for (WebAppContextUtil.ServletHolder servlet : wctx.getServlets()) {
@@ -140,6 +156,14 @@ public class AppEngineEmbeddedContainer extends AppEngineCommonContainer<AppEngi
             log.log(Level.SEVERE, "Error shutting down AppEngine", e);
         } finally {
             server = null;
+            releasePorts();
+        }
+    }
+
+    private void releasePorts() {
+        if (ports != null) {
+            ports.close();
+            ports = null;
         }
     }
 
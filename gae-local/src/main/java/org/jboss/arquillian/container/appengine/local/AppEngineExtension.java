@@ -23,6 +23,7 @@
 package org.jboss.arquillian.container.appengine.local;
 
 import org.jboss.arquillian.container.common.AppEngineDeploymentAppender;
+import org.jboss.arquillian.container.common.DeploymentTimingsObserver;
 import org.jboss.arquillian.container.spi.client.container.DeployableContainer;
 import org.jboss.arquillian.container.test.spi.client.deployment.AuxiliaryArchiveAppender;
 import org.jboss.arquillian.core.spi.LoadableExtension;
@@ -36,5 +37,6 @@ public class AppEngineExtension implements LoadableExtension {
     public void register(ExtensionBuilder builder) {
         builder.service(DeployableContainer.class, AppEngineLocalContainer.class);
         builder.service(AuxiliaryArchiveAppender.class, AppEngineDeploymentAppender.class);
+        builder.observer(DeploymentTimingsObserver.class);
     }
 }
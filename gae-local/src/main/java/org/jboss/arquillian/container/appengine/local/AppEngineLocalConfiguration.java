@@ -34,13 +34,16 @@ import org.jboss.arquillian.container.common.AppEngineCommonConfiguration;
 public class AppEngineLocalConfiguration extends AppEngineCommonConfiguration {
     private String server;
     private String address = "localhost";
-    private int port = 8080;
+    private int port = 8080; // 0 == allocate free ports, one per module
     private boolean disableUpdateCheck;
     private boolean startOnFirstThread = true;
     private String javaAgent;
     private String jvmFlags; //
     private String serverTestURL;
     private long startupTimeout = 30; // 30sec
+    private boolean daemon; // keep dev server running, redeploy .war in place
+    private int daemonScanSeconds = 1; // dev server's hot deploy scan period
+    private String daemonReloadMarker = "reloading the webapp"; // dev server output on hot deploy
 
     public String getServer() {
         return server;
@@ -113,4 +116,28 @@ public class AppEngineLocalConfiguration extends AppEngineCommonConfiguration {
     public void setStartupTimeout(long startupTimeout) {
         this.startupTimeout = startupTimeout;
     }
+
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    public void setDaemon(boolean daemon) {
+        this.daemon = daemon;
+    }
+
+    public int getDaemonScanSeconds() {
+        return daemonScanSeconds;
+    }
+
+    public void setDaemonScanSeconds(int daemonScanSeconds) {
+        this.daemonScanSeconds = daemonScanSeconds;
+    }
+
+    public String getDaemonReloadMarker() {
+        return daemonReloadMarker;
+    }
+
+    public void setDaemonReloadMarker(String daemonReloadMarker) {
+        this.daemonReloadMarker = daemonReloadMarker;
+    }
 }
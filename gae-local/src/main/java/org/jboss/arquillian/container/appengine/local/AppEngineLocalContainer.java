@@ -26,12 +26,19 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 
 import org.jboss.arquillian.container.appengine.cli.AppEngineCLIContainer;
+import org.jboss.arquillian.container.common.AppEngineCommonConfiguration;
+import org.jboss.arquillian.container.common.PortAllocator;
+import org.jboss.arquillian.container.common.PortReservation;
 import org.jboss.arquillian.container.spi.ConfigurationException;
 import org.jboss.arquillian.container.spi.client.container.DeploymentException;
+import org.jboss.arquillian.container.spi.client.container.LifecycleException;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
+import org.jboss.arquillian.protocol.modules.ModuleMetaData;
 import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
 
 /**
  * Local / development AppEngine container.
@@ -41,13 +48,24 @@ import org.jboss.shrinkwrap.api.Archive;
 public class AppEngineLocalContainer extends AppEngineCLIContainer<AppEngineLocalConfiguration> {
     private static final String JVM_FLAG = "jvm_flag";
     private static final String APPENGINE_TEST = "appengine.test.";
+    private static final String FULLSCAN_SECONDS = "appengine.fullscan.seconds";
+    private static final String MODULE_PORT = "com.google.appengine.devappserver_module.%s.port";
+    private static final long SCAN_MARGIN = 2000L; // scanner thread and output pump
 
     private AppEngineLocalConfiguration configuration;
+    private boolean daemonRunning;
+    private PortReservation ports;
+    private int port;
 
     public Class<AppEngineLocalConfiguration> getConfigurationClass() {
         return AppEngineLocalConfiguration.class;
     }
 
+    @Override
+    protected AppEngineCommonConfiguration getCommonConfiguration() {
+        return configuration;
+    }
+
     public void setup(AppEngineLocalConfiguration configuration) {
         this.configuration = configuration;
 
@@ -57,7 +75,36 @@ public class AppEngineLocalContainer extends AppEngineCLIContainer<AppEngineLoca
         System.setProperty(AppEngineLocalConfiguration.SDK_ROOT, configuration.getSdkDir());
     }
 
+    private boolean isDaemon(Archive<?> archive) {
+        return configuration.isDaemon() && archive instanceof WebArchive;
+    }
+
+    private File getDaemonLocation() {
+        // allocated ports change, so they cannot name the location
+        final int id = (configuration.getPort() != 0) ? configuration.getPort() : System.identityHashCode(this);
+        return new File(getTempRoot(), "arquillian-gae-daemon-" + id);
+    }
+
+    @Override
+    protected File export(Archive<?> archive) throws Exception {
+        if (isDaemon(archive)) {
+            // same directory for every deployment, the running dev server picks up the changes
+            return synchronize(archive, getDaemonLocation());
+        }
+        stopDaemon(); // e.g. .ear, needs a fresh server
+        return super.export(archive);
+    }
+
     protected ProtocolMetaData doDeploy(Archive<?> archive) throws DeploymentException {
+        if (daemonRunning) {
+            final ProtocolMetaData metaData = redeploy(archive);
+            if (metaData != null) {
+                return metaData;
+            }
+            daemonRunning = false;
+            shutdownServer();
+        }
+
         final String classpath = System.getProperty("java.class.path");
         try {
             List<String> args = new ArrayList<String>();
@@ -76,7 +123,17 @@ public class AppEngineLocalContainer extends AppEngineCLIContainer<AppEngineLoca
             addArg(args, "server", configuration.getServer(), true);
 
             addArg(args, "address", configuration.getAddress(), false);
-            addArg(args, "port", configuration.getPort(), false);
+            final List<ModuleMetaData> modules = extractModules(configuration.getAddress(), 0, archive);
+            port = configuration.getPort();
+            if (port == 0) {
+                ports = PortAllocator.reserve(configuration.getPortRange(), Math.max(1, modules.size()));
+                port = ports.getPort();
+                // first module is the default one, it uses --port
+                for (int i = 1; i < modules.size(); i++) {
+                    jvm_flag(args, "-D" + String.format(MODULE_PORT, modules.get(i).getModule()) + "=" + ports.getPort(i));
+                }
+            }
+            addArg(args, "port", port, false);
             addArg(args, "startOnFirstThread", configuration.isDisableUpdateCheck(), false);
             addArg(args, "disable_update_check", configuration.isStartOnFirstThread());
             boolean isJavaAgentSet = (configuration.getJavaAgent() != null);
@@ -93,25 +150,132 @@ public class AppEngineLocalContainer extends AppEngineCLIContainer<AppEngineLoca
                 }
             }
 
+            if (isDaemon(archive)) {
+                // enables dev server's hot deploy scanner
+                jvm_flag(args, "-D" + FULLSCAN_SECONDS + "=" + configuration.getDaemonScanSeconds());
+            }
+
             // TODO -- JVM FLAGS
             args.add(getAppLocation().getCanonicalPath());
 
             invokeAppEngine(sdkDir, "com.google.appengine.tools.KickStart", args.toArray(new String[args.size()]));
 
-            String serverURL = configuration.getServerTestURL();
-            if (serverURL == null)
-                serverURL = "http://localhost:" + configuration.getPort() + "/_ah/admin";
-
-            delayArchiveDeploy(serverURL, configuration.getStartupTimeout(), 1000L);
+            delayArchiveDeploy(getServerTestURL(), configuration.getStartupTimeout(), 1000L);
+            daemonRunning = isDaemon(archive);
 
-            return getProtocolMetaData(configuration.getAddress(), configuration.getPort(), archive);
+            return getProtocolMetaData(archive);
         } catch (Exception e) {
+            releasePorts();
             throw new DeploymentException("Cannot deploy to local GAE.", e);
         } finally {
             System.setProperty("java.class.path", classpath);
         }
     }
 
+    private String getServerTestURL() {
+        String serverURL = configuration.getServerTestURL();
+        if (serverURL == null)
+            serverURL = "http://localhost:" + port + "/_ah/admin";
+        return serverURL;
+    }
+
+    private ProtocolMetaData getProtocolMetaData(Archive<?> archive) {
+        final String address = configuration.getAddress();
+        final List<ModuleMetaData> modules = extractModules(address, port, archive);
+        if (ports != null) {
+            // each module got its own port
+            for (int i = 1; i < modules.size() && i < ports.size(); i++) {
+                modules.set(i, new ModuleMetaData(modules.get(i).getModule(), address, ports.getPort(i)));
+            }
+        }
+        return getProtocolMetaData(address, port, modules);
+    }
+
+    /**
+     * Redeploy into the running dev server.
+     * Touching appengine-web.xml makes its hot deploy scanner reload the app on the next scan,
+     * which the scanner announces in the dev server output.
+     *
+     * @return the metadata, or null if the reload wasn't confirmed and the dev server needs a restart
+     */
+    private ProtocolMetaData redeploy(Archive<?> archive) throws DeploymentException {
+        if (isAppEngineRunning() == false) {
+            log.warning("Dev server daemon is not running anymore, restarting it.");
+            return null;
+        }
+        try {
+            final File awXml = new File(getAppLocation(), "WEB-INF/appengine-web.xml");
+            log.info(String.format("Redeploying %s to running dev server.", archive.getName()));
+
+            final Callable<Void> touch = new Callable<Void>() {
+                public Void call() throws Exception {
+                    if (awXml.setLastModified(Math.max(System.currentTimeMillis(), awXml.lastModified() + 1000L)) == false) {
+                        throw new DeploymentException("Cannot touch " + awXml);
+                    }
+                    return null;
+                }
+            };
+            final String[] markers = {configuration.getDaemonReloadMarker()};
+            if (awaitReload(touch, markers, configuration.getDaemonScanSeconds() * 1000L + SCAN_MARGIN) == false) {
+                // the old app may still be running, don't hand it out as the new one
+                log.warning(String.format("Dev server reload of %s not confirmed, restarting it.", archive.getName()));
+                return null;
+            }
+            delayArchiveDeploy(getServerTestURL(), configuration.getStartupTimeout(), 1000L);
+
+            return getProtocolMetaData(archive);
+        } catch (DeploymentException e) {
+            throw e;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new DeploymentException("Cannot redeploy to local GAE.", e);
+        }
+    }
+
+    @Override
+    protected void shutdownServer() {
+        if (daemonRunning == false) {
+            try {
+                super.shutdownServer();
+            } finally {
+                releasePorts();
+            }
+        }
+    }
+
+    private void releasePorts() {
+        if (ports != null) {
+            ports.close();
+            ports = null;
+        }
+    }
+
+    @Override
+    protected void deleteAppLocation() {
+        if (daemonRunning == false) {
+            super.deleteAppLocation();
+        }
+    }
+
+    private void stopDaemon() {
+        if (daemonRunning) {
+            daemonRunning = false;
+            shutdownServer();
+            deleteAppLocation();
+        }
+    }
+
+    @Override
+    public void stop() throws LifecycleException {
+        try {
+            super.stop();
+        } finally {
+            stopDaemon();
+        }
+    }
+
     protected static void jvm_flag(List<String> args, String value) {
         addArg(args, JVM_FLAG, value, false);
     }
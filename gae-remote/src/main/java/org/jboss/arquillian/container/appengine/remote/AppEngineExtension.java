@@ -23,6 +23,7 @@
 package org.jboss.arquillian.container.appengine.remote;
 
 import org.jboss.arquillian.container.common.AppEngineDeploymentAppender;
+import org.jboss.arquillian.container.common.DeploymentTimingsObserver;
 import org.jboss.arquillian.container.spi.client.container.DeployableContainer;
 import org.jboss.arquillian.container.test.spi.client.deployment.ApplicationArchiveProcessor;
 import org.jboss.arquillian.container.test.spi.client.deployment.AuxiliaryArchiveAppender;
@@ -37,6 +38,7 @@ public class AppEngineExtension implements LoadableExtension {
     public void register(ExtensionBuilder builder) {
         builder.service(DeployableContainer.class, AppEngineRemoteContainer.class);
         builder.service(AuxiliaryArchiveAppender.class, AppEngineDeploymentAppender.class);
+        builder.observer(DeploymentTimingsObserver.class);
         builder.service(ApplicationArchiveProcessor.class, IndexHtmlAppender.class);
     }
 }
@@ -43,7 +43,14 @@ public class AppEngineRemoteConfiguration extends AppEngineCommonConfiguration {
     private boolean oAuth2 = Boolean.getBoolean(PREFIX + "oauth2");
     private boolean keepTempUploadDir = Boolean.getBoolean(PREFIX + "keepTempUploadDir");
     private String serverURL = System.getProperty(PREFIX + "server.url");
+    private String prompts = System.getProperty(PREFIX + "prompts"); // extra prompt=answer pairs, separated by |
     private long startupTimeout = 600; // 10min by default
+    private long cleanupTimeout = 300; // seconds per rollback attempt
+    private int cleanupRetries = 2;
+    private long cleanupWait = 60; // seconds a deployment waits for pending cleanup
+    private int warmupRequests = Integer.getInteger(PREFIX + "warmup.requests", 0); // concurrent requests per url, 0 disables warmup
+    private int warmupRounds = Integer.getInteger(PREFIX + "warmup.rounds", 10); // max rounds, unless latency settles earlier
+    private String warmupPaths = System.getProperty(PREFIX + "warmup.paths", "/_ah/warmup"); // comma separated, requested on every module host
 
     public String getEmail() {
         return email;
@@ -133,6 +140,14 @@ public class AppEngineRemoteConfiguration extends AppEngineCommonConfiguration {
         this.serverURL = serverURL;
     }
 
+    public String getPrompts() {
+        return prompts;
+    }
+
+    public void setPrompts(String prompts) {
+        this.prompts = prompts;
+    }
+
     public long getStartupTimeout() {
         return startupTimeout;
     }
@@ -140,4 +155,52 @@ public class AppEngineRemoteConfiguration extends AppEngineCommonConfiguration {
     public void setStartupTimeout(long startupTimeout) {
         this.startupTimeout = startupTimeout;
     }
+
+    public int getWarmupRequests() {
+        return warmupRequests;
+    }
+
+    public void setWarmupRequests(int warmupRequests) {
+        this.warmupRequests = warmupRequests;
+    }
+
+    public int getWarmupRounds() {
+        return warmupRounds;
+    }
+
+    public void setWarmupRounds(int warmupRounds) {
+        this.warmupRounds = warmupRounds;
+    }
+
+    public String getWarmupPaths() {
+        return warmupPaths;
+    }
+
+    public void setWarmupPaths(String warmupPaths) {
+        this.warmupPaths = warmupPaths;
+    }
+
+    public long getCleanupTimeout() {
+        return cleanupTimeout;
+    }
+
+    public void setCleanupTimeout(long cleanupTimeout) {
+        this.cleanupTimeout = cleanupTimeout;
+    }
+
+    public int getCleanupRetries() {
+        return cleanupRetries;
+    }
+
+    public void setCleanupRetries(int cleanupRetries) {
+        this.cleanupRetries = cleanupRetries;
+    }
+
+    public long getCleanupWait() {
+        return cleanupWait;
+    }
+
+    public void setCleanupWait(long cleanupWait) {
+        this.cleanupWait = cleanupWait;
+    }
 }
@@ -31,19 +31,30 @@ import java.io.OutputStreamWriter;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
 import org.jboss.arquillian.container.appengine.cli.AppEngineCLIContainer;
+import org.jboss.arquillian.container.common.AppEngineCommonConfiguration;
+import org.jboss.arquillian.container.common.ArchiveDescriptor;
+import org.jboss.arquillian.container.common.DeploymentFingerprint;
+import org.jboss.arquillian.container.common.DeploymentPhase;
 import org.jboss.arquillian.container.spi.ConfigurationException;
 import org.jboss.arquillian.container.spi.client.container.DeploymentException;
+import org.jboss.arquillian.container.spi.client.container.LifecycleException;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
+import org.jboss.arquillian.protocol.modules.ModuleHosts;
+import org.jboss.arquillian.protocol.modules.ModuleMetaData;
 import org.jboss.shrinkwrap.api.Archive;
-import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
 
 /**
  * Remote / production AppEngine container.
@@ -51,14 +62,24 @@ import org.jboss.shrinkwrap.api.Node;
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public class AppEngineRemoteContainer extends AppEngineCLIContainer<AppEngineRemoteConfiguration> {
-    private static final String APPLICATION = "<application>";
+    // AppCfg runs swap the global System.in and System.out, so only one can run at a time
+    private static final Lock APPCFG_LOCK = new ReentrantLock();
+
+    private static final List<String> EAR_DESCRIPTORS = Arrays.asList("META-INF/application.xml", "META-INF/appengine-application.xml");
+    private static final List<String> WAR_DESCRIPTORS = Arrays.asList("WEB-INF/appengine-web.xml", "WEB-INF/web.xml");
 
     private AppEngineRemoteConfiguration configuration;
+    private CleanupPipeline cleanup;
 
     public Class<AppEngineRemoteConfiguration> getConfigurationClass() {
         return AppEngineRemoteConfiguration.class;
     }
 
+    @Override
+    protected AppEngineCommonConfiguration getCommonConfiguration() {
+        return configuration;
+    }
+
     public void setup(AppEngineRemoteConfiguration configuration) {
         this.configuration = configuration;
 
@@ -72,6 +93,8 @@ public class AppEngineRemoteContainer extends AppEngineCLIContainer<AppEngineRem
     }
 
     protected ProtocolMetaData doDeploy(Archive<?> archive) throws DeploymentException {
+        awaitCleanup();
+
         String sdkDir = configuration.getSdkDir();
         if (new File(sdkDir).isDirectory() == false)
             throw new DeploymentException("SDK root is not a directory: " + sdkDir);
@@ -83,87 +106,267 @@ public class AppEngineRemoteContainer extends AppEngineCLIContainer<AppEngineRem
             throw new DeploymentException("Cannot get app location.", e);
         }
 
+        boolean updating = false;
         try {
             log.info(archive.toString(true));
 
-            List<String> args = new ArrayList<String>();
-
-            addArg(args, "email", configuration.getEmail(), false);
-            addArg(args, "host", configuration.getHost(), true);
-            addArg(args, "compile_encoding", configuration.getEncoding(), true);
-            addArg(args, "proxy", configuration.getProxy(), true);
-            addArg(args, "passin", configuration.isPassIn());
-            if (configuration.isPassIn() == false)
-                addArg(args, "disable_prompt", configuration.isPrompt());
+            List<String> args = getOptions();
             addArg(args, "enable_jar_splitting", configuration.isSplitJars());
             addArg(args, "retain_upload_dir", configuration.isKeepTempUploadDir());
             args.add("update");
             args.add(app);
 
-            invokeAppEngine(sdkDir, "com.google.appengine.tools.admin.AppCfg", args.toArray(new String[args.size()]));
-
             String host = configuration.getHost();
             if (host == null) {
                 host = readAppId(archive) + ".appspot.com";
             }
 
+            if (isLive(archive, host)) {
+                return getProtocolMetaData(host, 80, archive);
+            }
+
+            // probing only makes sense once the update is done, a failed or hanging update fails the deployment
+            updating = true;
+            runAppEngine(sdkDir, "com.google.appengine.tools.admin.AppCfg", args.toArray(new String[args.size()]), configuration.getStartupTimeout() * 1000L);
+
             String serverURL = configuration.getServerURL();
             if (serverURL == null) {
                 serverURL = "http://" + host;
             }
 
-            delayArchiveDeploy(serverURL + "/index.html", configuration.getStartupTimeout(), 60 * 1000L);
+            delayArchiveDeploy(serverURL + "/index.html", configuration.getStartupTimeout(), 5 * 1000L);
 
-            return getProtocolMetaData(host, 80, archive);
+            final List<ModuleMetaData> modules = extractModules(host, 80, archive);
+            warmup(modules);
+            return getProtocolMetaData(host, 80, modules);
         } catch (Exception e) {
-            List<String> args = Arrays.asList("rollback", app);
-            try {
-                invokeAppEngine(sdkDir, "com.google.appengine.tools.admin.AppCfg", args.toArray(new String[args.size()]));
-            } catch (Exception ignored) {
+            if (updating) {
+                scheduleRollback(sdkDir); // nothing to roll back before AppCfg ran
             }
             throw new DeploymentException("Cannot deploy to local GAE.", e);
         }
     }
 
-    private String readAppId(Archive<?> archive) throws IOException {
-        Node webXml = archive.get("WEB-INF/appengine-web.xml");
-        InputStream is = webXml.getAsset().openStream();
+    private List<String> getOptions() {
+        List<String> args = new ArrayList<String>();
+
+        addArg(args, "email", configuration.getEmail(), false);
+        addArg(args, "host", configuration.getHost(), true);
+        addArg(args, "compile_encoding", configuration.getEncoding(), true);
+        addArg(args, "proxy", configuration.getProxy(), true);
+        addArg(args, "passin", configuration.isPassIn());
+        if (configuration.isPassIn() == false)
+            addArg(args, "disable_prompt", configuration.isPrompt());
+        return args;
+    }
+
+    private synchronized CleanupPipeline getCleanup() {
+        if (cleanup == null) {
+            cleanup = new CleanupPipeline(configuration.getCleanupRetries(), 5 * 1000L);
+        }
+        return cleanup;
+    }
+
+    /**
+     * A broken update leaves the version locked, so the next update has to wait for the rollback.
+     * The AppCfg lock keeps them apart anyway, this only bounds the wait before the update is prepared.
+     */
+    private void awaitCleanup() throws DeploymentException {
+        final CleanupPipeline pipeline;
+        synchronized (this) {
+            pipeline = cleanup;
+        }
         try {
-            StringBuilder builder = new StringBuilder();
-            int x;
-            boolean isAppId = false;
-            StringBuilder appId = new StringBuilder();
-            while ((x = is.read()) != -1) {
-                char ch = (char) x;
-                if (isAppId) {
-                    if (ch == '<')
-                        break;
-                    else
-                        appId.append(ch);
-                } else {
-                    builder.append(ch);
+            if (pipeline != null && pipeline.await(configuration.getCleanupWait() * 1000L) == false) {
+                log.warning("Rollback of a previous deployment still running, the update waits for it.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeploymentException("Interrupted while waiting for cleanup.", e);
+        }
+    }
+
+    /**
+     * Roll back the failed update in the background.
+     * AppCfg only needs the descriptors, so they are copied aside, and the next deployment can reuse the app location.
+     * An EAR keeps its descriptors in META-INF, and every module in its own directory.
+     */
+    private void scheduleRollback(final String sdkDir) {
+        final File snapshot;
+        try {
+            snapshot = Files.createTempDirectory("arquillian-gae-rollback").toFile();
+            snapshotDescriptors(getAppLocation(), snapshot);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Cannot prepare rollback of " + getAppLocation(), e);
+            return;
+        }
+
+        final List<String> args = getOptions();
+        args.add("rollback");
+        args.add(snapshot.getAbsolutePath());
+        getCleanup().submit("rollback " + getAppLocation().getName(), new CleanupPipeline.Task() {
+            public void run() throws Exception {
+                try {
+                    runAppEngine(sdkDir, "com.google.appengine.tools.admin.AppCfg", args.toArray(new String[args.size()]), configuration.getCleanupTimeout() * 1000L);
+                } finally {
+                    deleteRecursively(snapshot);
                 }
-                if (isAppId == false && builder.toString().endsWith(APPLICATION)) {
-                    isAppId = true;
+            }
+        });
+    }
+
+    /**
+     * Copy the descriptors AppCfg rollback needs.
+     *
+     * @param app      the app location
+     * @param snapshot the target directory
+     * @throws IOException for any I/O error
+     */
+    static void snapshotDescriptors(File app, File snapshot) throws IOException {
+        copyDescriptors(app, snapshot, EAR_DESCRIPTORS);
+        copyDescriptors(app, snapshot, WAR_DESCRIPTORS);
+        final File[] modules = app.listFiles();
+        if (modules != null) {
+            for (File module : modules) {
+                if (new File(module, "WEB-INF").isDirectory()) {
+                    copyDescriptors(module, new File(snapshot, module.getName()), WAR_DESCRIPTORS);
                 }
             }
-            return appId.toString();
+        }
+    }
+
+    private static void copyDescriptors(File from, File to, List<String> descriptors) throws IOException {
+        for (String descriptor : descriptors) {
+            final File file = new File(from, descriptor);
+            if (file.isFile()) {
+                final File target = new File(to, descriptor);
+                if (target.getParentFile().mkdirs() == false && target.getParentFile().isDirectory() == false) {
+                    throw new IOException("Cannot create " + target.getParentFile());
+                }
+                Files.copy(file.toPath(), target.toPath());
+            }
+        }
+    }
+
+    @Override
+    public void stop() throws LifecycleException {
+        // rollbacks still need the SDK class loader, which super.stop() releases
+        try {
+            reportCleanup();
         } finally {
-            try {
-                is.close();
-            } catch (IOException ignored) {
+            super.stop();
+        }
+    }
+
+    private void reportCleanup() {
+        final CleanupPipeline pipeline;
+        synchronized (this) {
+            pipeline = cleanup;
+            cleanup = null;
+        }
+        if (pipeline == null) {
+            return;
+        }
+        try {
+            for (CleanupPipeline.Result result : pipeline.shutdown(configuration.getCleanupTimeout() * 1000L)) {
+                if (result.isOk()) {
+                    log.info("Cleanup " + result);
+                } else {
+                    log.warning("Cleanup " + result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void warmup(List<ModuleMetaData> modules) throws InterruptedException {
+        if (configuration.getWarmupRequests() <= 0) {
+            return;
+        }
+        final List<String> urls = new ArrayList<String>();
+        for (ModuleMetaData module : modules) {
+            final String host = ModuleHosts.host(module.getHost(), module.getModule(), null, 0);
+            for (String path : configuration.getWarmupPaths().split(",")) {
+                path = path.trim();
+                if (path.length() > 0) {
+                    urls.add("http://" + host + (path.startsWith("/") ? path : "/" + path));
+                }
             }
         }
+        final long start = System.nanoTime();
+        try {
+            new WarmupStage(configuration.getWarmupRequests(), configuration.getWarmupRounds()).warmup(urls);
+        } finally {
+            recordPhase(DeploymentPhase.WARMUP, start);
+        }
+    }
+
+    @Override
+    protected String[] getReadyMarkers() {
+        return new String[0]; // we wait for AppCfg to finish instead
+    }
+
+    /**
+     * Add the deployment fingerprint to the app and check if the live version already has it.
+     * Only plain .war deployments are checked.
+     */
+    private boolean isLive(Archive<?> archive, String host) throws IOException {
+        if (configuration.isSkipUnchanged() == false || (archive instanceof WebArchive) == false) {
+            return false;
+        }
+        final ArchiveDescriptor descriptor = ArchiveDescriptor.of(archive);
+        final String fingerprint = DeploymentFingerprint.write(getAppLocation());
+        final String url = DeploymentFingerprint.url(host, descriptor.getModule(), descriptor.getVersion());
+        if (DeploymentFingerprint.isLive(url, fingerprint)) {
+            log.info(String.format("Version %s is already deployed [%s], skipping AppCfg update.", descriptor.getVersion(), fingerprint));
+            return true;
+        }
+        return false;
+    }
+
+    private String readAppId(Archive<?> archive) {
+        return ArchiveDescriptor.of(archive).getApplication();
     }
 
-    protected void invokeAppEngine(String sdkDir, String appEngineClass, Object args) throws Exception {
-        final ThreadGroup threads = new ThreadGroup("AppCfgThreadGroup");
-        invokeAppEngine(threads, sdkDir, appEngineClass, args);
+    /**
+     * Prompts AppCfg may print, with the answers we type in.
+     *
+     * @return prompt to answer map
+     */
+    protected Map<String, String> getPrompts() {
+        final Map<String, String> prompts = new LinkedHashMap<String, String>();
+        prompts.put("Password for", configuration.getPassword());
+        final String extra = configuration.getPrompts();
+        if (extra != null) {
+            for (String pair : extra.split("\\|")) {
+                final int p = pair.lastIndexOf('=');
+                if (p <= 0) {
+                    throw new IllegalArgumentException("Invalid prompt, expected prompt=answer: " + pair);
+                }
+                prompts.put(pair.substring(0, p), pair.substring(p + 1));
+            }
+        }
+        return prompts;
     }
 
     protected Runnable createRunnable(final ThreadGroup threads, final Method main, final Object args) {
         return new Runnable() {
             public void run() {
+                try {
+                    APPCFG_LOCK.lockInterruptibly();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for another AppCfg run.", e);
+                }
+                try {
+                    runLocked();
+                } finally {
+                    APPCFG_LOCK.unlock();
+                }
+            }
+
+            private void runLocked() {
                 final PrintStream outOrig = System.out;
                 final InputStream inOrig = System.in;
                 try {
@@ -178,18 +381,27 @@ public class AppEngineRemoteContainer extends AppEngineCLIContainer<AppEngineRem
                     System.setIn(inReplace);
 
                     final BufferedWriter stdinWriter = new BufferedWriter(new OutputStreamWriter(stdin));
-                    final Runnable onExpected = new Runnable() {
-                        public void run() {
-                            try {
-                                stdinWriter.write(configuration.getPassword());
-                                stdinWriter.newLine();
-                                stdinWriter.flush();
-                            } catch (final IOException e) {
-                                log.log(Level.SEVERE, "Unable to enter password", e);
-                            }
+                    final Map<String, String> prompts = getPrompts();
+                    final List<String> answers = new ArrayList<String>(prompts.values());
+                    final PromptMatcher.Listener onExpected = new PromptMatcher.Listener() {
+                        public void matched(final int prompt) {
+                            Thread t = new Thread(new Runnable() {
+                                public void run() {
+                                    try {
+                                        stdinWriter.write(answers.get(prompt));
+                                        stdinWriter.newLine();
+                                        stdinWriter.flush();
+                                    } catch (final IOException e) {
+                                        log.log(Level.SEVERE, "Unable to answer prompt", e);
+                                    }
+                                }
+                            }, "EnterPasswordThread");
+                            t.setDaemon(true);
+                            t.start();
                         }
                     };
-                    System.setOut(new PrintStream(new PasswordOutputStream(threads, outOrig, onExpected), true));
+                    final PromptMatcher matcher = new PromptMatcher(new ArrayList<String>(prompts.keySet()));
+                    System.setOut(new PrintStream(new PasswordOutputStream(threads, outOrig, matcher, onExpected), true));
 
                     main.invoke(null, args);
                 } catch (Exception e) {
@@ -206,48 +418,49 @@ public class AppEngineRemoteContainer extends AppEngineCLIContainer<AppEngineRem
     private static class PasswordOutputStream extends OutputStream {
         private final ThreadGroup threads;
         private final PrintStream out;
-        private final Runnable onExpected;
-        private final byte[] expect;
-        private int match = 0;
+        private final PromptMatcher matcher;
+        private final PromptMatcher.Listener onExpected;
+        // thread group membership doesn't change, no need to walk the groups on every write
+        private final ThreadLocal<Boolean> redirectThread = new ThreadLocal<Boolean>() {
+            @Override
+            protected Boolean initialValue() {
+                ThreadGroup tg = Thread.currentThread().getThreadGroup();
+                while ((threads != tg) && (tg != null)) {
+                    tg = tg.getParent();
+                }
+                return (threads == tg);
+            }
+        };
 
-        public PasswordOutputStream(ThreadGroup threads, PrintStream out, Runnable onExpected) {
+        public PasswordOutputStream(ThreadGroup threads, PrintStream out, PromptMatcher matcher, PromptMatcher.Listener onExpected) {
             this.threads = threads;
             this.out = out;
+            this.matcher = matcher;
             this.onExpected = onExpected;
-            try {
-                this.expect = "Password for".getBytes("ASCII");
-            } catch (UnsupportedEncodingException e) {
-                throw new RuntimeException(e);
-            }
-        }
-
-        private boolean isRedirectThread() {
-            ThreadGroup tg = Thread.currentThread().getThreadGroup();
-            while ((threads != tg) && (tg != null)) {
-                tg = tg.getParent();
-            }
-            return (threads == tg);
         }
 
         public void write(int b) throws IOException {
-            if (isRedirectThread()) {
-                expect((byte) (0xFF & b));
+            if (redirectThread.get()) {
+                synchronized (matcher) {
+                    matcher.match((byte) b, onExpected);
+                }
             }
             this.out.write(b);
         }
 
-        private synchronized void expect(byte b) {
-            if (expect[match] == b) {
-                match++;
-                if (match == expect.length) {
-                    match = 0;
-                    Thread t = new Thread(onExpected, "EnterPasswordThread");
-                    t.setDaemon(true);
-                    t.start();
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (redirectThread.get()) {
+                synchronized (matcher) {
+                    matcher.match(b, off, len, onExpected);
                 }
-            } else {
-                match = 0;
             }
+            this.out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
         }
     }
 }
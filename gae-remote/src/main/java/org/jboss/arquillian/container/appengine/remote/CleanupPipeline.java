@@ -0,0 +1,190 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs cleanup tasks, e.g. rollback of a failed update, in the background.
+ * <p/>
+ * Tasks run one at a time, so they never race each other's AppCfg invocation,
+ * and are retried with a growing delay. Every task is tracked, so the results can be reported at the end.
+ */
+class CleanupPipeline {
+    private static final Logger log = Logger.getLogger(CleanupPipeline.class.getName());
+
+    interface Task {
+        void run() throws Exception;
+    }
+
+    private final int retries;
+    private final long retryDelay;
+    private final List<Result> results = new ArrayList<Result>();
+    private final List<Future<?>> pending = new ArrayList<Future<?>>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "AppEngineCleanup");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    CleanupPipeline(int retries, long retryDelay) {
+        this.retries = retries;
+        this.retryDelay = retryDelay;
+    }
+
+    synchronized void submit(final String name, final Task task) {
+        final Result result = new Result(name);
+        results.add(result);
+        if (executor.isShutdown()) {
+            result.failure = new IllegalStateException("Cleanup pipeline is shut down");
+            result.done = true;
+            return;
+        }
+        pending.add(executor.submit(new Runnable() {
+            public void run() {
+                final long start = System.currentTimeMillis();
+                for (int attempt = 1; attempt <= retries + 1; attempt++) {
+                    result.attempts = attempt;
+                    try {
+                        task.run();
+                        result.failure = null;
+                        break;
+                    } catch (InterruptedException e) {
+                        result.failure = e;
+                        Thread.currentThread().interrupt();
+                        break;
+                    } catch (Exception e) {
+                        result.failure = e;
+                        log.log(Level.WARNING, String.format("Cleanup %s failed, attempt %s of %s.", name, attempt, retries + 1), e);
+                        if (attempt <= retries && sleep(retryDelay * attempt) == false) {
+                            break;
+                        }
+                    }
+                }
+                result.millis = System.currentTimeMillis() - start;
+                result.done = true;
+                log.fine("Cleanup " + result); // reported by the container on stop
+            }
+        }));
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Wait for the submitted tasks.
+     *
+     * @param timeout the timeout, in millis
+     * @return true if all finished, false on timeout
+     * @throws InterruptedException if interrupted
+     */
+    boolean await(long timeout) throws InterruptedException {
+        final List<Future<?>> futures;
+        synchronized (this) {
+            futures = new ArrayList<Future<?>>(pending);
+        }
+        final long deadline = System.currentTimeMillis() + timeout;
+        for (Future<?> future : futures) {
+            try {
+                future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException ignored) {
+                // tasks record their own failures
+            }
+        }
+        synchronized (this) {
+            pending.removeAll(futures);
+        }
+        return true;
+    }
+
+    /**
+     * Wait for the tasks, stop the pipeline and get all results.
+     *
+     * @param timeout the timeout, in millis
+     * @return the results
+     * @throws InterruptedException if interrupted
+     */
+    List<Result> shutdown(long timeout) throws InterruptedException {
+        synchronized (this) {
+            executor.shutdown(); // later submits are recorded as failed
+        }
+        // no monitor while waiting, a concurrent submit must not block
+        if (executor.awaitTermination(timeout, TimeUnit.MILLISECONDS) == false) {
+            executor.shutdownNow();
+        }
+        synchronized (this) {
+            return new ArrayList<Result>(results);
+        }
+    }
+
+    static class Result {
+        private final String name;
+        private volatile int attempts;
+        private volatile long millis;
+        private volatile Exception failure;
+        private volatile boolean done;
+
+        private Result(String name) {
+            this.name = name;
+        }
+
+        boolean isOk() {
+            return done && failure == null;
+        }
+
+        int getAttempts() {
+            return attempts;
+        }
+
+        @Override
+        public String toString() {
+            if (done == false) {
+                return String.format("%s: UNFINISHED after %s attempts", name, attempts);
+            }
+            return String.format("%s: %s after %s attempts, %sms%s", name, (failure == null) ? "OK" : "FAILED", attempts, millis,
+                (failure == null) ? "" : " [" + failure + "]");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.remote;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Finds any of several prompts in a byte stream, in a single pass.
+ * <p/>
+ * The prompts are compiled into one Aho-Corasick automaton with a full transition table,
+ * so each byte costs one array lookup, whatever the number of prompts.
+ * Not thread safe.
+ */
+class PromptMatcher {
+    interface Listener {
+        void matched(int prompt);
+    }
+
+    private final int[][] transitions;
+    private final int[] output; // matched prompt per state, -1 if none
+    private int state;
+
+    PromptMatcher(List<String> prompts) {
+        final Charset ascii = Charset.forName("US-ASCII");
+
+        // trie
+        final List<int[]> trie = new ArrayList<int[]>();
+        final List<Integer> out = new ArrayList<Integer>();
+        trie.add(newState());
+        out.add(-1);
+        for (int i = 0; i < prompts.size(); i++) {
+            int current = 0;
+            for (byte b : prompts.get(i).getBytes(ascii)) {
+                final int c = b & 0xFF;
+                if (trie.get(current)[c] == -1) {
+                    trie.get(current)[c] = trie.size();
+                    trie.add(newState());
+                    out.add(-1);
+                }
+                current = trie.get(current)[c];
+            }
+            if (out.get(current) == -1) {
+                out.set(current, i);
+            }
+        }
+
+        // failure links, folded into the transitions breadth first
+        transitions = trie.toArray(new int[trie.size()][]);
+        output = new int[transitions.length];
+        for (int i = 0; i < output.length; i++) {
+            output[i] = out.get(i);
+        }
+        final int[] failure = new int[transitions.length];
+        final Deque<Integer> queue = new ArrayDeque<Integer>();
+        for (int c = 0; c < 256; c++) {
+            final int next = transitions[0][c];
+            if (next == -1) {
+                transitions[0][c] = 0;
+            } else {
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (queue.isEmpty() == false) {
+            final int s = queue.poll();
+            if (output[s] == -1) {
+                output[s] = output[failure[s]]; // a shorter prompt ends here
+            }
+            for (int c = 0; c < 256; c++) {
+                final int next = transitions[s][c];
+                if (next == -1) {
+                    transitions[s][c] = transitions[failure[s]][c];
+                } else {
+                    failure[next] = transitions[failure[s]][c];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    private static int[] newState() {
+        final int[] state = new int[256];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    void match(byte b, Listener listener) {
+        int s = transitions[state][b & 0xFF];
+        if (output[s] != -1) {
+            listener.matched(output[s]);
+            s = 0;
+        }
+        state = s;
+    }
+
+    void match(byte[] bytes, int offset, int length, Listener listener) {
+        int s = state;
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            s = transitions[s][bytes[i] & 0xFF];
+            if (output[s] != -1) {
+                listener.matched(output[s]);
+                s = 0; // a prompt is answered once
+            }
+        }
+        state = s;
+    }
+}
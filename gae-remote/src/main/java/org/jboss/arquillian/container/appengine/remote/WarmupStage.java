@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.remote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Warms up instances after deployment, so tests don't pay for loading requests.
+ * <p/>
+ * Every round sends the configured number of concurrent requests to each url.
+ * Rounds repeat until the median latency of a round is within the tolerance
+ * of the previous one, or the round limit is reached. Only rounds without failed
+ * requests can settle, and a round where every request fails ends the warmup.
+ */
+class WarmupStage {
+    private static final Logger log = Logger.getLogger(WarmupStage.class.getName());
+
+    private static final int TIMEOUT = 60 * 1000;
+    private static final double TOLERANCE = 0.2; // 20%
+
+    private final int requests;
+    private final int maxRounds;
+
+    WarmupStage(int requests, int maxRounds) {
+        this.requests = requests;
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * Warm up the urls.
+     *
+     * @param urls the urls
+     * @return the median latency of the successful requests per round, in millis
+     * @throws InterruptedException if interrupted
+     */
+    List<Long> warmup(List<String> urls) throws InterruptedException {
+        final List<Long> curve = new ArrayList<Long>();
+        if (requests <= 0 || urls.isEmpty()) {
+            return curve;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(requests * urls.size(), new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "Warmup");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            long previous = -1;
+            for (int round = 0; round < maxRounds; round++) {
+                final List<Future<Long>> futures = new ArrayList<Future<Long>>();
+                for (final String url : urls) {
+                    for (int i = 0; i < requests; i++) {
+                        futures.add(executor.submit(new Callable<Long>() {
+                            public Long call() throws Exception {
+                                return request(url);
+                            }
+                        }));
+                    }
+                }
+
+                final List<Long> latencies = new ArrayList<Long>();
+                Throwable failure = null;
+                for (Future<Long> future : futures) {
+                    try {
+                        latencies.add(future.get());
+                    } catch (ExecutionException e) {
+                        failure = e.getCause();
+                    }
+                }
+                final int failures = futures.size() - latencies.size();
+                if (latencies.isEmpty()) {
+                    log.log(Level.WARNING, String.format("Warmup round %s: all %s requests failed, giving up.", round + 1, failures), failure);
+                    break;
+                }
+
+                Collections.sort(latencies);
+                final long median = latencies.get(latencies.size() / 2);
+                curve.add(median);
+                log.info(String.format("Warmup round %s: median %sms, max %sms, %s failed", round + 1, median, latencies.get(latencies.size() - 1), failures));
+
+                if (failures > 0) {
+                    previous = -1; // the instances are not there yet
+                    continue;
+                }
+                if (previous >= 0 && Math.abs(median - previous) <= previous * TOLERANCE) {
+                    break; // settled
+                }
+                previous = median;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info(String.format("Warmup latency curve [ms]: %s", curve));
+        return curve;
+    }
+
+    private static long request(String url) throws IOException {
+        final long start = System.nanoTime();
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        connection.setUseCaches(false);
+        connection.getResponseCode(); // any status warms the instance
+        final InputStream is = (connection.getErrorStream() != null) ? connection.getErrorStream() : connection.getInputStream();
+        try {
+            final byte[] buffer = new byte[4096];
+            while (is.read(buffer) != -1) {
+                // drain, so the connection can be reused
+            }
+        } finally {
+            is.close();
+        }
+        return (System.nanoTime() - start) / 1000000L;
+    }
+}
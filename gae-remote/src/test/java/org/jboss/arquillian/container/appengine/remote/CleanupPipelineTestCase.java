@@ -0,0 +1,143 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.remote;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CleanupPipeline}.
+ */
+public class CleanupPipelineTestCase {
+    @Test
+    public void testRetriesUntilSuccess() throws Exception {
+        final CleanupPipeline pipeline = new CleanupPipeline(2, 1);
+        final AtomicInteger runs = new AtomicInteger();
+        pipeline.submit("flaky", new CleanupPipeline.Task() {
+            public void run() throws Exception {
+                if (runs.incrementAndGet() < 3) {
+                    throw new Exception("run " + runs.get());
+                }
+            }
+        });
+        final List<CleanupPipeline.Result> results = pipeline.shutdown(5000);
+        Assert.assertEquals(1, results.size());
+        Assert.assertTrue(results.get(0).toString(), results.get(0).isOk());
+        Assert.assertEquals(3, results.get(0).getAttempts());
+    }
+
+    @Test
+    public void testGivesUpAfterRetries() throws Exception {
+        final CleanupPipeline pipeline = new CleanupPipeline(1, 1);
+        final AtomicInteger runs = new AtomicInteger();
+        pipeline.submit("broken", new CleanupPipeline.Task() {
+            public void run() throws Exception {
+                runs.incrementAndGet();
+                throw new Exception("broken");
+            }
+        });
+        final CleanupPipeline.Result result = pipeline.shutdown(5000).get(0);
+        Assert.assertFalse(result.isOk());
+        Assert.assertEquals(2, result.getAttempts());
+        Assert.assertEquals(2, runs.get());
+        Assert.assertTrue(result.toString(), result.toString().contains("FAILED"));
+    }
+
+    @Test
+    public void testTasksRunOneAtATime() throws Exception {
+        final CleanupPipeline pipeline = new CleanupPipeline(0, 1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            pipeline.submit("task " + i, new CleanupPipeline.Task() {
+                public void run() throws Exception {
+                    if (running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    Thread.sleep(10);
+                    running.decrementAndGet();
+                }
+            });
+        }
+        Assert.assertTrue(pipeline.await(5000));
+        Assert.assertEquals(0, overlaps.get());
+        Assert.assertEquals(5, pipeline.shutdown(5000).size());
+    }
+
+    @Test
+    public void testAwaitTimesOut() throws Exception {
+        final CleanupPipeline pipeline = new CleanupPipeline(0, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        pipeline.submit("blocked", await(release));
+        Assert.assertFalse(pipeline.await(50));
+        release.countDown();
+        Assert.assertTrue(pipeline.await(5000));
+        Assert.assertTrue(pipeline.shutdown(5000).get(0).isOk());
+    }
+
+    @Test
+    public void testSubmitDoesNotBlockOnShutdown() throws Exception {
+        final CleanupPipeline pipeline = new CleanupPipeline(0, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        pipeline.submit("blocked", await(release));
+
+        final AtomicReference<List<CleanupPipeline.Result>> results = new AtomicReference<List<CleanupPipeline.Result>>();
+        final Thread stopper = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    results.set(pipeline.shutdown(5000));
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        stopper.start();
+        while (stopper.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(5); // shutdown is waiting for the blocked task
+        }
+
+        final long start = System.nanoTime();
+        pipeline.submit("late", await(new CountDownLatch(0)));
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+        release.countDown();
+        stopper.join(5000);
+        Assert.assertEquals(2, results.get().size());
+        Assert.assertTrue(results.get().get(0).isOk());
+        Assert.assertFalse(results.get().get(1).isOk()); // pipeline already shut down
+    }
+
+    private static CleanupPipeline.Task await(final CountDownLatch latch) {
+        return new CleanupPipeline.Task() {
+            public void run() throws Exception {
+                latch.await();
+            }
+        };
+    }
+}
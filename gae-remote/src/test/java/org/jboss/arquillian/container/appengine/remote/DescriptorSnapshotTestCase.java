@@ -0,0 +1,111 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.remote;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the descriptor snapshot the rollback runs against.
+ */
+public class DescriptorSnapshotTestCase {
+    private File app;
+    private File snapshot;
+
+    @Before
+    public void setUp() throws Exception {
+        app = Files.createTempDirectory("snapshot-app").toFile();
+        snapshot = Files.createTempDirectory("snapshot").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        delete(app);
+        delete(snapshot);
+    }
+
+    @Test
+    public void testWar() throws Exception {
+        write(app, "WEB-INF/appengine-web.xml", "<appengine-web-app/>");
+        write(app, "WEB-INF/web.xml", "<web-app/>");
+        write(app, "WEB-INF/classes/Foo.class", "foo");
+        write(app, "index.html", "index");
+
+        AppEngineRemoteContainer.snapshotDescriptors(app, snapshot);
+
+        Assert.assertEquals("<appengine-web-app/>", read(snapshot, "WEB-INF/appengine-web.xml"));
+        Assert.assertEquals("<web-app/>", read(snapshot, "WEB-INF/web.xml"));
+        Assert.assertFalse(new File(snapshot, "WEB-INF/classes").exists());
+        Assert.assertFalse(new File(snapshot, "index.html").exists());
+    }
+
+    @Test
+    public void testEar() throws Exception {
+        write(app, "META-INF/application.xml", "<application/>");
+        write(app, "META-INF/appengine-application.xml", "<appengine-application/>");
+        write(app, "default/WEB-INF/appengine-web.xml", "<default/>");
+        write(app, "default/WEB-INF/web.xml", "<web-app/>");
+        write(app, "default/WEB-INF/lib/foo.jar", "jar");
+        write(app, "backend/WEB-INF/appengine-web.xml", "<backend/>");
+        write(app, "lib/shared.jar", "jar");
+
+        AppEngineRemoteContainer.snapshotDescriptors(app, snapshot);
+
+        Assert.assertEquals("<application/>", read(snapshot, "META-INF/application.xml"));
+        Assert.assertEquals("<appengine-application/>", read(snapshot, "META-INF/appengine-application.xml"));
+        Assert.assertEquals("<default/>", read(snapshot, "default/WEB-INF/appengine-web.xml"));
+        Assert.assertEquals("<web-app/>", read(snapshot, "default/WEB-INF/web.xml"));
+        Assert.assertEquals("<backend/>", read(snapshot, "backend/WEB-INF/appengine-web.xml"));
+        Assert.assertFalse(new File(snapshot, "backend/WEB-INF/web.xml").exists());
+        Assert.assertFalse(new File(snapshot, "default/WEB-INF/lib").exists());
+        Assert.assertFalse(new File(snapshot, "lib").exists());
+    }
+
+    private static void write(File root, String path, String content) throws IOException {
+        final File file = new File(root, path);
+        Assert.assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        Files.write(file.toPath(), content.getBytes(Charset.forName("UTF-8")));
+    }
+
+    private static String read(File root, String path) throws IOException {
+        return new String(Files.readAllBytes(new File(root, path).toPath()), Charset.forName("UTF-8"));
+    }
+
+    private static void delete(File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+}
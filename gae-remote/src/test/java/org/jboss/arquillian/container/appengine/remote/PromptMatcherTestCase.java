@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.remote;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PromptMatcher}.
+ */
+public class PromptMatcherTestCase {
+    private static final List<String> PROMPTS = Arrays.asList("Password for", "code:", "ord f", "Continue? (y/n)");
+
+    @Test
+    public void testMatchesAcrossWrites() throws Exception {
+        final byte[] bytes = "Password for me: ... Enter code: ok\nContinue? (y/n)".getBytes("US-ASCII");
+        for (int chunk = 1; chunk <= bytes.length; chunk++) {
+            final PromptMatcher matcher = new PromptMatcher(PROMPTS);
+            final Hits hits = new Hits();
+            for (int offset = 0; offset < bytes.length; offset += chunk) {
+                matcher.match(bytes, offset, Math.min(chunk, bytes.length - offset), hits);
+            }
+            // "ord f" ends inside "Password for", so it wins and resets the automaton
+            Assert.assertEquals("chunk " + chunk, Arrays.asList(2, 1, 3), hits.prompts);
+        }
+    }
+
+    @Test
+    public void testSingleBytes() throws Exception {
+        final PromptMatcher matcher = new PromptMatcher(PROMPTS);
+        final Hits hits = new Hits();
+        for (byte b : "xx code:code: Continue? (y/n)".getBytes("US-ASCII")) {
+            matcher.match(b, hits);
+        }
+        Assert.assertEquals(Arrays.asList(1, 1, 3), hits.prompts);
+    }
+
+    @Test
+    public void testFailureLinks() throws Exception {
+        final PromptMatcher matcher = new PromptMatcher(Arrays.asList("abcd", "bce"));
+        final Hits hits = new Hits();
+        final byte[] bytes = "abce".getBytes("US-ASCII");
+        matcher.match(bytes, 0, 2, hits);
+        matcher.match(bytes, 2, 2, hits);
+        Assert.assertEquals(Arrays.asList(1), hits.prompts);
+    }
+
+    @Test
+    public void testNoMatch() throws Exception {
+        final PromptMatcher matcher = new PromptMatcher(PROMPTS);
+        final Hits hits = new Hits();
+        final byte[] bytes = "Passwor d for, cod e:".getBytes("US-ASCII");
+        matcher.match(bytes, 0, bytes.length, hits);
+        Assert.assertTrue(hits.prompts.isEmpty());
+    }
+
+    private static class Hits implements PromptMatcher.Listener {
+        private final List<Integer> prompts = new ArrayList<Integer>();
+
+        public void matched(int prompt) {
+            prompts.add(prompt);
+        }
+    }
+}
@@ -25,6 +25,7 @@ package org.jboss.arquillian.container.appengine.tools;
 
 
 import org.jboss.arquillian.container.common.AppEngineCommonConfiguration;
+import org.jboss.arquillian.container.spi.ConfigurationException;
 
 /**
  * AppEngine CLI configuration.
@@ -39,6 +40,8 @@ public class AppEngineToolsConfiguration extends AppEngineCommonConfiguration {
     private String password = System.getProperty(PREFIX + "password"); // TODO better?
     private String appId = System.getProperty(PREFIX + "appId");
     private String module = System.getProperty(PREFIX + "module");
+    private int uploadConcurrency = Integer.getInteger(PREFIX + "upload.concurrency", 1); // 1 == one module at a time
+    private String telemetryFile = System.getProperty(PREFIX + "deploy.telemetry"); // JSON lines per upload phase, off by default
 
     // [null]: use userId/password
     // [blank]: use access_token in ${HOME}/appcfg_oauth2_tokens_java
@@ -114,6 +117,22 @@ public class AppEngineToolsConfiguration extends AppEngineCommonConfiguration {
         this.module = module;
     }
 
+    public int getUploadConcurrency() {
+        return uploadConcurrency;
+    }
+
+    public void setUploadConcurrency(int uploadConcurrency) {
+        this.uploadConcurrency = uploadConcurrency;
+    }
+
+    public String getTelemetryFile() {
+        return telemetryFile;
+    }
+
+    public void setTelemetryFile(String telemetryFile) {
+        this.telemetryFile = telemetryFile;
+    }
+
     public void setOauth2token(String token) {
         this.oauth2token = token;
     }
@@ -121,4 +140,12 @@ public class AppEngineToolsConfiguration extends AppEngineCommonConfiguration {
     public String getOauth2token() {
         return this.oauth2token;
     }
+
+    @Override
+    public void validate() throws ConfigurationException {
+        super.validate();
+        if (uploadConcurrency < 1) {
+            throw new ConfigurationException("Upload concurrency must be at least 1: " + uploadConcurrency);
+        }
+    }
 }
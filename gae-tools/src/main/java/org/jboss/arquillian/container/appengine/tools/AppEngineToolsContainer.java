@@ -29,23 +29,34 @@ import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Executor;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.google.appengine.repackaged.com.google.api.client.auth.oauth2.Credential;
 import com.google.appengine.tools.admin.AppAdmin;
 import com.google.appengine.tools.admin.AppAdminFactory;
 import com.google.appengine.tools.admin.Application;
 import com.google.appengine.tools.admin.GenericApplication;
-import com.google.appengine.tools.admin.OAuth2Native;
 import com.google.appengine.tools.admin.UpdateFailureEvent;
 import com.google.appengine.tools.admin.UpdateListener;
 import com.google.appengine.tools.admin.UpdateProgressEvent;
@@ -53,20 +64,24 @@ import com.google.appengine.tools.admin.UpdateSuccessEvent;
 import com.google.appengine.tools.info.SdkInfo;
 import com.google.appengine.tools.info.UpdateCheck;
 import com.google.apphosting.utils.config.AppEngineConfigException;
+import org.jboss.arquillian.container.common.AppEngineCommonConfiguration;
 import org.jboss.arquillian.container.common.AppEngineCommonContainer;
+import org.jboss.arquillian.container.common.ArchiveDescriptor;
+import org.jboss.arquillian.container.common.DeploymentFingerprint;
+import org.jboss.arquillian.container.common.ExportCache;
 import org.jboss.arquillian.container.common.ParseUtils;
+import org.jboss.arquillian.container.common.UploadManifest;
 import org.jboss.arquillian.container.spi.ConfigurationException;
 import org.jboss.arquillian.container.spi.client.container.DeploymentException;
+import org.jboss.arquillian.container.spi.client.container.LifecycleException;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
+import org.jboss.arquillian.core.api.Event;
+import org.jboss.arquillian.core.api.annotation.Inject;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.Node;
-import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
-import org.jboss.shrinkwrap.api.spec.JavaArchive;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
-import org.jboss.shrinkwrap.descriptor.api.Descriptors;
-import org.jboss.shrinkwrap.descriptor.api.application5.ApplicationDescriptor;
-import org.jboss.shrinkwrap.descriptor.api.application5.ModuleType;
 import org.xml.sax.SAXParseException;
 
 /**
@@ -78,12 +93,23 @@ import org.xml.sax.SAXParseException;
  */
 public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineToolsConfiguration> {
     private AppEngineToolsConfiguration configuration;
+    private static final String SHARED_LIBS = ".ear-lib"; // under the EAR root, next to the modules
+
     private Map<String, String> modules = new LinkedHashMap<String, String>();
+    private ExecutorService executor;
+
+    @Inject
+    private Event<DeployProgressEvent> progressEvent;
 
     public Class<AppEngineToolsConfiguration> getConfigurationClass() {
         return AppEngineToolsConfiguration.class;
     }
 
+    @Override
+    protected AppEngineCommonConfiguration getCommonConfiguration() {
+        return configuration;
+    }
+
     public void setup(AppEngineToolsConfiguration configuration) {
         final String sdkDir = configuration.getSdkDir();
         if (sdkDir == null)
@@ -115,51 +141,93 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
         }
     }
 
+    /**
+     * Lay the EAR out as one exploded WAR per module, each with the EAR libraries in WEB-INF/lib.
+     * WARs are exported as they are, and every changed library is written once and linked into each module,
+     * so no per module copy of the WAR or its libraries is built in memory.
+     *
+     * @param ear the ear
+     * @return the root directory
+     */
     protected File rearrangeEar(EnterpriseArchive ear) {
-        final File root = getTempRoot();
+        // modules go into their own directory, never directly into temp root
+        final File root = new File(getTempRoot(), ear.getName());
+        if (root.mkdirs() == false && root.isDirectory() == false) {
+            throw new IllegalStateException("Cannot create EAR export directory: " + root);
+        }
 
-        final Node appXml = ear.get(ParseUtils.APPLICATION_XML);
-        if (appXml != null) {
-            InputStream stream = appXml.getAsset().openStream();
-            try {
-                ApplicationDescriptor ad = Descriptors.importAs(ApplicationDescriptor.class).fromStream(stream);
+        final ArchiveDescriptor descriptor = ArchiveDescriptor.of(ear);
 
-                List<JavaArchive> libs = new ArrayList<JavaArchive>();
-                String libDir = ad.getLibraryDirectory();
-                if (libDir != null) {
-                    libDir = "lib"; // default?
-                }
-                Node lib = ear.get(libDir);
-                if (lib != null) {
-                    // defensive copy
-                    final Set<Node> children = new HashSet<Node>(lib.getChildren());
-                    for (Node child : children) {
-                        if (child.getPath().get().endsWith(".jar")) {
-                            JavaArchive jar = ear.getAsType(JavaArchive.class, child.getPath());
-                            libs.add(jar);
+        final List<File> libs = new ArrayList<File>();
+        final String libDir = descriptor.getLibraryDirectory();
+        final Node lib = (libDir.length() > 0) ? ear.get(libDir) : null; // empty library-directory disables it
+        if (lib != null) {
+            final File shared = new File(root, SHARED_LIBS);
+            if (shared.mkdirs() == false && shared.isDirectory() == false) {
+                throw new IllegalStateException("Cannot create shared library directory: " + shared);
+            }
+            try {
+                // libraries of the previous deployment are only rewritten if they changed
+                final ExportCache cache = new ExportCache(shared);
+                // defensive copy
+                final Set<Node> children = new HashSet<Node>(lib.getChildren());
+                for (Node child : children) {
+                    final String path = child.getPath().get();
+                    if (path.endsWith(".jar") && child.getAsset() != null) {
+                        final String name = path.substring(path.lastIndexOf('/') + 1);
+                        final File file = new File(shared, name);
+                        if (cache.isUpToDate("/" + name, child.getAsset(), file) == false) {
+                            writeLibrary(child.getAsset(), file);
                         }
+                        libs.add(file);
                     }
                 }
-
-                List<ModuleType<ApplicationDescriptor>> allModules = ad.getAllModule();
-                for (ModuleType<ApplicationDescriptor> mt : allModules) {
-                    String uri = mt.getOrCreateWeb().getWebUri();
-                    if (uri != null) {
-                        WebArchive war = ear.getAsType(WebArchive.class, uri);
-                        handleWar(root, libs, war, uri);
-                    } else {
-                        mt.removeWeb();
-                    }
-                }
-            } finally {
-                safeClose(stream);
+                cache.commit();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot use export cache for " + shared, e);
             }
         }
 
+        for (String uri : descriptor.getWebUris()) {
+            WebArchive war = ear.getAsType(WebArchive.class, uri);
+            handleWar(root, libs, war, uri);
+        }
+
         return root;
     }
 
-    private void handleWar(File root, List<JavaArchive> libs, WebArchive war, String uri) {
+    /**
+     * Stream the library into a new file, which replaces the old one.
+     * Writing in place would change the content behind the links of previous deployments.
+     *
+     * @param asset the library
+     * @param file  the target
+     */
+    private static void writeLibrary(Asset asset, File file) {
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+            final InputStream is = asset.openStream();
+            try {
+                Files.copy(is, tmp, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                safeClose(is);
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write EAR library " + file, e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void handleWar(File root, List<File> libs, WebArchive war, String uri) {
         try {
             String module = parseModule(war);
             if (modules.put(module, uri) != null) {
@@ -168,15 +236,32 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
                 log.info(String.format("Found %s module in web archive %s", module, war.getName()));
             }
 
-            WebArchive copy = ShrinkWrap.create(WebArchive.class, war.getName());
-            copy.merge(war);
-            copy.addAsLibraries(libs);
-            export(copy, root);
+            final File exploded = export(war, root);
+            final File webInfLib = new File(exploded, "WEB-INF/lib");
+            if (webInfLib.mkdirs() == false && webInfLib.isDirectory() == false) {
+                throw new IOException("Cannot create " + webInfLib);
+            }
+            for (File jar : libs) {
+                linkOrCopy(jar, new File(webInfLib, jar.getName())); // EAR libraries win, as with addAsLibraries
+            }
         } catch (Exception e) {
             throw new IllegalStateException(e);
         }
     }
 
+    private void linkOrCopy(File source, File target) throws IOException {
+        final Path to = target.toPath();
+        Files.deleteIfExists(to);
+        try {
+            Files.createLink(to, source.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Cannot link " + source + ", copying it instead: " + e);
+            }
+            Files.copy(source.toPath(), to);
+        }
+    }
+
     protected ProtocolMetaData doDeploy(Archive<?> archive) throws DeploymentException {
         try {
             return doDeployInternal(archive);
@@ -213,13 +298,11 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
         } else if (archive instanceof EnterpriseArchive) {
             EnterpriseArchive ear = EnterpriseArchive.class.cast(archive);
             if (appId == null) {
-                Node aaXml = ear.get(ParseUtils.APPENGINE_APPLICATION_XML);
-                if (aaXml == null) {
+                if (ear.get(ParseUtils.APPENGINE_APPLICATION_XML) == null) {
                     throw new IllegalArgumentException("Missing appengine-application.xml: " + ear);
                 }
                 try {
-                    Map<String, String> results = ParseUtils.parseTokens(aaXml, ParseUtils.APPLICATION);
-                    appId = results.get(ParseUtils.APPLICATION);
+                    appId = ArchiveDescriptor.of(ear).getApplication();
                 } catch (Exception e) {
                     throw new DeploymentException(e.getMessage());
                 }
@@ -241,6 +324,7 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
 
                 handleApp(app);
             } else {
+                final Map<String, Application> apps = new LinkedHashMap<String, Application>();
                 for (Map.Entry<String, String> entry : modules.entrySet()) {
                     Application app = readApplication(entry.getValue());
 
@@ -248,16 +332,13 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
                         app.getAppEngineWebXml().setAppId(appId);
                     }
 
-                    handleApp(app);
+                    apps.put(entry.getKey(), app);
                 }
+                handleApps(apps);
             }
         }
 
-        String server = configuration.getServer();
-        if (server == null) {
-            server = "appspot.com";
-        }
-        String host = appId + "." + server;
+        String host = appId + "." + getServer();
 
         if (module == null) {
             String[] appModules = modules.keySet().toArray(new String[modules.size()]);
@@ -268,31 +349,104 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
     }
 
     protected void handleApp(Application app) throws DeploymentException {
+        final String module = app.getAppEngineWebXml().getModule();
+        handleApps(Collections.singletonMap(module != null ? module : DEFAULT, app));
+    }
+
+    /**
+     * Upload modules, up to upload concurrency at a time.
+     * The startup timeout applies per round of concurrent uploads.
+     * Uploads still running after a failure can't be stopped, so the upload pool is replaced.
+     *
+     * @param apps the applications, by module
+     * @throws DeploymentException if any upload fails
+     */
+    protected void handleApps(Map<String, Application> apps) throws DeploymentException {
+        if (apps.isEmpty()) {
+            return; // e.g. an EAR without web modules
+        }
+        final int threads = Math.max(Math.min(configuration.getUploadConcurrency(), apps.size()), 1);
+        final int rounds = (apps.size() + threads - 1) / threads;
+        final Map<String, Future<Status>> uploads = new LinkedHashMap<String, Future<Status>>();
+        final Set<String> running = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final Map<String, DeployTelemetry> telemetry = new LinkedHashMap<String, DeployTelemetry>();
+        final Map<String, Status> outcomes = new HashMap<String, Status>();
+        ExecutorService executor = null;
         try {
-            final AppAdmin appAdmin = createAppAdmin(app);
+            executor = getExecutor();
+            for (Map.Entry<String, Application> entry : apps.entrySet()) {
+                if (isLive(entry.getKey(), entry.getValue())) {
+                    continue;
+                }
 
-            final DeployUpdateListener listener = new DeployUpdateListener(
-                this,
-                new PrintWriter(System.out, true),
-                new PrintWriter(System.err, true)
-            );
+                final Application app = entry.getValue();
+                final AppAdmin appAdmin = createAppAdmin(app);
+
+                final DeployUpdateListener listener = new DeployUpdateListener(
+                    entry.getKey(),
+                    new PrintWriter(System.out, true),
+                    new PrintWriter(System.err, true)
+                );
+                telemetry.put(entry.getKey(), listener.telemetry);
+
+                // update is synchronous, the listener holds the outcome once it returns
+                final String module = entry.getKey();
+                uploads.put(module, executor.submit(new Callable<Status>() {
+                    public Status call() throws Exception {
+                        final UploadManifest manifest;
+                        running.add(module);
+                        try {
+                            // hashing the module is part of its upload, so it runs concurrently too
+                            manifest = scanManifest(module, app);
+                            appAdmin.update(listener);
+                        } finally {
+                            running.remove(module);
+                        }
+                        final Status status = listener.getStatus();
+                        if (status == Status.OK && manifest != null) {
+                            try {
+                                manifest.store();
+                            } catch (IOException e) {
+                                log.log(Level.WARNING, "Cannot store upload manifest.", e);
+                            }
+                        }
+                        return (status != null) ? status : Status.CANCEL;
+                    }
+                }));
+            }
 
-            getExecutor().execute(new Runnable() {
-                public void run() {
-                    appAdmin.update(listener);
+            final long deadline = System.currentTimeMillis() + rounds * configuration.getStartupTimeout();
+            final Map<String, Status> failed = new LinkedHashMap<String, Status>();
+            final List<Throwable> errors = new ArrayList<Throwable>();
+            for (Map.Entry<String, Future<Status>> entry : uploads.entrySet()) {
+                final Future<Status> upload = entry.getValue();
+                try {
+                    final Status status = upload.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+                    outcomes.put(entry.getKey(), status);
+                    if (status != Status.OK) {
+                        failed.put(entry.getKey(), status);
+                    }
+                } catch (TimeoutException e) {
+                    upload.cancel(true);
+                    outcomes.put(entry.getKey(), Status.TIMEOUT);
+                    failed.put(entry.getKey(), Status.TIMEOUT);
+                } catch (ExecutionException e) {
+                    outcomes.put(entry.getKey(), Status.ERROR);
+                    failed.put(entry.getKey(), Status.ERROR);
+                    errors.add(e.getCause());
                 }
-            });
-
-            Status status;
-            synchronized (this) {
-                do {
-                    wait(configuration.getStartupTimeout());
-                    status = listener.getStatus();
-                } while (status == null); // guard against spurious wakeup
             }
 
-            if (status != Status.OK) {
-                throw new DeploymentException("Cannot deploy via GAE tools: " + status);
+            if (failed.isEmpty() == false) {
+                String message = "Cannot deploy via GAE tools: " + failed;
+                if (failed.containsValue(Status.TIMEOUT)) {
+                    message += "; timed out uploads cannot be interrupted, their threads are abandoned and the next deployment uses a new upload pool";
+                }
+                final DeploymentException de = new DeploymentException(message);
+                for (Throwable error : errors) {
+                    de.addSuppressed(error);
+                }
+                throw de;
             }
         } catch (DeploymentException e) {
             throw e;
@@ -315,11 +469,144 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
                 Thread.currentThread().interrupt();
             }
             throw new DeploymentException("Cannot deploy via GAE tools.", e);
+        } finally {
+            // don't leave uploads running behind a failed deployment
+            for (Future<Status> upload : uploads.values()) {
+                upload.cancel(true);
+            }
+            // AppAdmin.update ignores interrupts, so queued uploads of the next deployment would wait behind it
+            if (running.isEmpty() == false) {
+                log.warning(String.format("Uploads %s are still running, replacing the upload pool.", running));
+                abandonExecutor(executor);
+            }
+            reportTelemetry(telemetry, outcomes);
         }
     }
 
-    protected Executor getExecutor() {
-        return Executors.newSingleThreadExecutor();
+    /**
+     * Close unfinished uploads with the outcome the deployment decided, write and fire the events.
+     *
+     * @param telemetry the telemetry, by module
+     * @param outcomes  the outcome, by module, missing ones were cancelled
+     */
+    private void reportTelemetry(Map<String, DeployTelemetry> telemetry, Map<String, Status> outcomes) {
+        final List<DeployProgressEvent> events = new ArrayList<DeployProgressEvent>();
+        for (Map.Entry<String, DeployTelemetry> entry : telemetry.entrySet()) {
+            final Status status = outcomes.get(entry.getKey());
+            entry.getValue().end((status != null) ? status : Status.CANCEL); // no-op unless the upload never finished
+            events.addAll(entry.getValue().getEvents());
+        }
+
+        final String file = configuration.getTelemetryFile();
+        if (file != null && file.length() > 0 && events.isEmpty() == false) {
+            try {
+                DeployTelemetry.append(new File(file), events);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Cannot write deploy telemetry.", e);
+            }
+        }
+        // fired from the deploying thread, not from the upload threads
+        if (progressEvent != null) {
+            for (DeployProgressEvent event : events) {
+                progressEvent.fire(event);
+            }
+        }
+    }
+
+    private String getServer() {
+        String server = configuration.getServer();
+        if (server == null) {
+            server = "appspot.com";
+        }
+        return server;
+    }
+
+    /**
+     * Add the deployment fingerprint to the module and check if the live version already has it.
+     *
+     * @param module the module
+     * @param app    the application
+     * @return true if the upload can be skipped
+     * @throws IOException for any I/O error
+     */
+    protected boolean isLive(String module, Application app) throws IOException {
+        if (configuration.isSkipUnchanged() == false) {
+            return false;
+        }
+        final String fingerprint = DeploymentFingerprint.write(new File(app.getPath()));
+        final String url = DeploymentFingerprint.url(app.getAppId() + "." + getServer(), module, app.getVersion());
+        if (DeploymentFingerprint.isLive(url, fingerprint)) {
+            log.info(String.format("Module %s, version %s is already deployed [%s], skipping upload.", module, app.getVersion(), fingerprint));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Scan the module against the manifest of its last upload and log the delta.
+     *
+     * @param module the module
+     * @param app    the application
+     * @return the manifest, or null if disabled
+     * @throws IOException for any I/O error
+     */
+    protected UploadManifest scanManifest(String module, Application app) throws IOException {
+        final String directory = configuration.getUploadManifestDir();
+        if (directory == null || directory.length() == 0) {
+            return null;
+        }
+        final UploadManifest manifest = UploadManifest.load(new File(directory), app.getAppId(), module, app.getVersion());
+        final UploadManifest.Delta delta = manifest.scan(new File(app.getPath()));
+        log.info(String.format("Module %s, version %s: %s", module, app.getVersion(), delta));
+        return manifest;
+    }
+
+    /**
+     * Upload threads, shared by all deployments of this container.
+     *
+     * @return the executor
+     */
+    protected synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(configuration.getUploadConcurrency(), 1), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, "AppAdminUpdate-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Stop using the executor, its busy threads are left to finish on their own.
+     *
+     * @param abandoned the executor
+     */
+    protected synchronized void abandonExecutor(ExecutorService abandoned) {
+        if (abandoned != null) {
+            abandoned.shutdownNow();
+            if (executor == abandoned) {
+                executor = null;
+            }
+        }
+    }
+
+    @Override
+    public void stop() throws LifecycleException {
+        try {
+            super.stop();
+        } finally {
+            synchronized (this) {
+                if (executor != null) {
+                    executor.shutdownNow();
+                    executor = null;
+                }
+            }
+        }
     }
 
     protected Application readApplication(String path) {
@@ -334,31 +621,6 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
         }
     }
 
-    // Based on com.google.appengine.tools.admin.AppCfg.authorizedOauth2()
-    private String getOAuthToken() {
-        String runOauth2Msg = "Create ${HOME}/.appcfg_oauth2_tokens by running $appcfg.sh --oauth2 update YOUR-WAR-DIR";
-        String userDir = System.getProperty("user.home");
-        File tokenFile = new File(userDir, ".appcfg_oauth2_tokens_java");
-
-        if (!tokenFile.exists()) {
-            throw new ConfigurationException(runOauth2Msg);
-        }
-
-        boolean useCookies = true;  // use ${HOME}/.appcfg_oauth2_tokens_java
-        String oauth2ClientId = null;
-        String oauth2ClientSecret = null;
-        String oauth2RefreshToken = null;
-        OAuth2Native client = new OAuth2Native(useCookies, oauth2ClientId,
-            oauth2ClientSecret, oauth2RefreshToken);
-        Credential credential = client.authorize();
-
-        if (credential == null || credential.getAccessToken() == null) {
-            String errMsg = "Tokens expired? " + runOauth2Msg;
-            throw new ConfigurationException(errMsg);
-        }
-        return credential.getAccessToken();
-    }
-
     AppAdmin createAppAdmin(GenericApplication app) throws IOException {
         AppAdminFactory appAdminFactory = new AppAdminFactory();
 
@@ -394,7 +656,7 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
         String configOauthToken = configuration.getOauth2token(); // -Dappengine.oauth2token=
         if (configOauthToken != null) {
             if (configOauthToken.trim().equals("")) {  // if blank token, get it from cookie.
-                oauthToken = getOAuthToken();
+                oauthToken = OAuth2CredentialProvider.getInstance().getAccessToken();
             } else {
                 oauthToken = configOauthToken;
             }
@@ -503,16 +765,18 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
             return false;
         }
 
-        private final Object waiter;
+        private final String module;
+        private final DeployTelemetry telemetry;
         private final PrintWriter errorWriter;
         private final PrintWriter outputWriter;
 
         private MessageHeaders messageHeaders;
         private int percentDone = 0;
-        private Status status = null;
+        private volatile Status status = null;
 
-        private DeployUpdateListener(Object waiter, PrintWriter outputWriter, PrintWriter errorWriter) {
-            this.waiter = waiter;
+        private DeployUpdateListener(String module, PrintWriter outputWriter, PrintWriter errorWriter) {
+            this.module = module;
+            this.telemetry = new DeployTelemetry(module);
             this.outputWriter = outputWriter;
             this.errorWriter = errorWriter;
             this.messageHeaders = new MessageHeaders();
@@ -525,6 +789,7 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
         public void onFailure(UpdateFailureEvent event) {
             // Create status object and print error message to the writer
             status = Status.ERROR;
+            telemetry.end(status);
             outputWriter.println(event.getFailureMessage());
 
             // Only print the details for JSP compilation errors
@@ -534,10 +799,6 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
                     outputWriter.println(details);
                 }
             }
-
-            synchronized (waiter) {
-                waiter.notify();
-            }
         }
 
         public void onProgress(UpdateProgressEvent event) {
@@ -549,13 +810,16 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
             PrefixHeaderPair php = messageHeaders.getMessageHeader(msg);
 
             if (php != null) {
-                outputWriter.println("\n" + php.header + ":");
+                telemetry.phase(php.header);
+                outputWriter.println("\n[" + module + "] " + php.header + ":");
             }
+            telemetry.progress(percentDone, msg);
             outputWriter.println("\t" + msg);
         }
 
         public void onSuccess(UpdateSuccessEvent event) {
             status = Status.OK;
+            telemetry.end(status);
 
             percentDone = 0; // reset
 
@@ -569,10 +833,6 @@ public class AppEngineToolsContainer extends AppEngineCommonContainer<AppEngineT
             }
 
             outputWriter.println("\nDeployment completed successfully");
-
-            synchronized (waiter) {
-                waiter.notify();
-            }
         }
 
         /**
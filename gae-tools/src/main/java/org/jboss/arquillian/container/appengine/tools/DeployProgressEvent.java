@@ -0,0 +1,164 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One phase of a module upload, e.g. "Deploying" or "Verifying availability".
+ * Fired by the tools container once the upload is over.
+ */
+public class DeployProgressEvent {
+    private final String module;
+    private final String phase;
+    private final long start;
+    private long end;
+    private final List<long[]> progress = new ArrayList<long[]>();
+    private int files = -1;
+    private long bytes = -1;
+    private Status status;
+
+    DeployProgressEvent(String module, String phase, long start) {
+        this.module = module;
+        this.phase = phase;
+        this.start = start;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    /**
+     * Phase start, epoch millis.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Phase end, epoch millis.
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Percentage curve, as [millis since phase start, percent] pairs.
+     */
+    public List<long[]> getProgress() {
+        return Collections.unmodifiableList(progress);
+    }
+
+    /**
+     * Files reported by the SDK, -1 if unknown.
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * Bytes reported by the SDK, -1 if unknown.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Upload outcome, set on the last phase only.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    void progress(long time, int percent) {
+        progress.add(new long[]{time - start, percent});
+    }
+
+    void files(int files) {
+        this.files = Math.max(this.files, files);
+    }
+
+    void bytes(long bytes) {
+        this.bytes = Math.max(this.bytes, bytes);
+    }
+
+    void end(long end, Status status) {
+        this.end = end;
+        this.status = status;
+    }
+
+    public String toJson() {
+        final StringBuilder builder = new StringBuilder("{");
+        builder.append("\"module\":").append(quote(module));
+        builder.append(",\"phase\":").append(quote(phase));
+        builder.append(",\"start\":").append(start);
+        builder.append(",\"end\":").append(end);
+        builder.append(",\"millis\":").append(end - start);
+        if (files >= 0) {
+            builder.append(",\"files\":").append(files);
+        }
+        if (bytes >= 0) {
+            builder.append(",\"bytes\":").append(bytes);
+        }
+        if (status != null) {
+            builder.append(",\"status\":").append(quote(status.name()));
+        }
+        builder.append(",\"progress\":[");
+        for (int i = 0; i < progress.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append('[').append(progress.get(i)[0]).append(',').append(progress.get(i)[1]).append(']');
+        }
+        return builder.append("]}").toString();
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        final StringBuilder builder = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the SDK's progress messages of one module upload into DeployProgressEvents.
+ */
+class DeployTelemetry {
+    private static final Pattern FILES = Pattern.compile("(\\d+) (?:files|file)\\b");
+    private static final Pattern BYTES = Pattern.compile("(\\d+(?:\\.\\d+)?) ?(bytes|[kKMG]B)\\b");
+
+    private final String module;
+    private final List<DeployProgressEvent> events = new ArrayList<DeployProgressEvent>();
+    private DeployProgressEvent current;
+
+    DeployTelemetry(String module) {
+        this.module = module;
+    }
+
+    synchronized void phase(String phase) {
+        final long now = System.currentTimeMillis();
+        if (current != null) {
+            current.end(now, null);
+        }
+        current = new DeployProgressEvent(module, phase, now);
+        events.add(current);
+    }
+
+    synchronized void progress(int percent, String message) {
+        if (current == null) {
+            phase("Preparing to deploy"); // SDK didn't announce the first phase
+        }
+        current.progress(System.currentTimeMillis(), percent);
+        if (message == null) {
+            return;
+        }
+        final Matcher files = FILES.matcher(message);
+        if (files.find()) {
+            current.files(Integer.parseInt(files.group(1)));
+        }
+        final Matcher bytes = BYTES.matcher(message);
+        if (bytes.find()) {
+            current.bytes(toBytes(Double.parseDouble(bytes.group(1)), bytes.group(2)));
+        }
+    }
+
+    synchronized void end(Status status) {
+        if (current != null) {
+            current.end(System.currentTimeMillis(), status);
+            current = null;
+        }
+    }
+
+    synchronized List<DeployProgressEvent> getEvents() {
+        return new ArrayList<DeployProgressEvent>(events);
+    }
+
+    private static long toBytes(double value, String unit) {
+        switch (unit.toUpperCase(Locale.ENGLISH)) {
+            case "KB":
+                return (long) (value * 1024);
+            case "MB":
+                return (long) (value * 1024 * 1024);
+            case "GB":
+                return (long) (value * 1024 * 1024 * 1024);
+            default:
+                return (long) value;
+        }
+    }
+
+    /**
+     * Append events as JSON lines.
+     *
+     * @param file   the file
+     * @param events the events
+     * @throws IOException for any I/O error
+     */
+    static synchronized void append(File file, List<DeployProgressEvent> events) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent.mkdirs() == false && parent.isDirectory() == false) {
+            throw new IOException("Cannot create " + parent);
+        }
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8");
+        try {
+            for (DeployProgressEvent event : events) {
+                writer.write(event.toJson());
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.appengine.repackaged.com.google.api.client.auth.oauth2.Credential;
+import com.google.appengine.repackaged.com.google.api.client.util.Clock;
+import com.google.appengine.tools.admin.OAuth2Native;
+import org.jboss.arquillian.container.spi.ConfigurationException;
+
+/**
+ * Access token from ${HOME}/.appcfg_oauth2_tokens_java, shared by all uploads.
+ * <p/>
+ * The token is authorized once, cached until it expires and refreshed in the background
+ * shortly before that, so concurrent module uploads never wait for a refresh.
+ */
+final class OAuth2CredentialProvider {
+    private static final Logger log = Logger.getLogger(OAuth2CredentialProvider.class.getName());
+
+    private static final String RUN_OAUTH2_MSG = "Create ${HOME}/.appcfg_oauth2_tokens by running $appcfg.sh --oauth2 update YOUR-WAR-DIR";
+    static final long REFRESH_MARGIN = TimeUnit.MINUTES.toMillis(5);
+    static final long MIN_REFRESH_DELAY = TimeUnit.SECONDS.toMillis(30); // short lived tokens must not spin
+    static final long EXPIRY_MARGIN = TimeUnit.MINUTES.toMillis(1); // a handed out token must outlive the request
+
+    private static final OAuth2CredentialProvider instance = new OAuth2CredentialProvider(new CredentialSource() {
+        public Credential authorize() {
+            return authorizeNative();
+        }
+    }, Clock.SYSTEM, Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "OAuth2Refresh");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }));
+
+    /**
+     * Source of authorized credentials.
+     */
+    interface CredentialSource {
+        /**
+         * @return the credential, never null
+         * @throws ConfigurationException if there is no valid token
+         */
+        Credential authorize();
+    }
+
+    private final CredentialSource source;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+
+    private Credential credential;
+    private ScheduledFuture<?> refresh;
+
+    OAuth2CredentialProvider(CredentialSource source, Clock clock, ScheduledExecutorService scheduler) {
+        this.source = source;
+        this.clock = clock;
+        this.scheduler = scheduler;
+    }
+
+    static OAuth2CredentialProvider getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get a valid access token.
+     *
+     * @return the token
+     * @throws ConfigurationException if there is no valid token
+     */
+    synchronized String getAccessToken() {
+        Credential current = credential;
+        if (current == null) {
+            current = credential = source.authorize();
+        } else if (isExpiring(current, EXPIRY_MARGIN)) {
+            final Credential refreshed = refresh(); // background refresh didn't make it
+            if (refreshed != null) {
+                current = refreshed;
+            }
+        }
+        if (current.getAccessToken() == null || isExpiring(current, 0L)) {
+            credential = null;
+            cancel();
+            throw new ConfigurationException("Tokens expired? " + RUN_OAUTH2_MSG);
+        }
+        schedule(current);
+        return current.getAccessToken();
+    }
+
+    // Based on com.google.appengine.tools.admin.AppCfg.authorizedOauth2()
+    private static Credential authorizeNative() {
+        String userDir = System.getProperty("user.home");
+        File tokenFile = new File(userDir, ".appcfg_oauth2_tokens_java");
+
+        if (!tokenFile.exists()) {
+            throw new ConfigurationException(RUN_OAUTH2_MSG);
+        }
+
+        boolean useCookies = true;  // use ${HOME}/.appcfg_oauth2_tokens_java
+        String oauth2ClientId = null;
+        String oauth2ClientSecret = null;
+        String oauth2RefreshToken = null;
+        OAuth2Native client = new OAuth2Native(useCookies, oauth2ClientId,
+            oauth2ClientSecret, oauth2RefreshToken);
+        Credential credential = client.authorize();
+
+        if (credential == null || credential.getAccessToken() == null) {
+            throw new ConfigurationException("Tokens expired? " + RUN_OAUTH2_MSG);
+        }
+        return credential;
+    }
+
+    private boolean isExpiring(Credential credential, long margin) {
+        final Long expiration = credential.getExpirationTimeMilliseconds();
+        return expiration != null && expiration - margin <= clock.currentTimeMillis();
+    }
+
+    /**
+     * Refresh the token, authorizing again if the refresh token doesn't work.
+     * Called with the lock held.
+     *
+     * @return the valid credential, or null if there is none
+     */
+    private Credential refresh() {
+        if (credential == null) {
+            return null;
+        }
+        try {
+            if (credential.refreshToken() && credential.getAccessToken() != null && isExpiring(credential, 0L) == false) {
+                log.fine("Refreshed OAuth2 access token.");
+                return credential;
+            }
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Cannot refresh OAuth2 access token, authorizing again.", e);
+        }
+        try {
+            credential = source.authorize();
+            return credential;
+        } catch (ConfigurationException e) {
+            log.log(Level.WARNING, "Cannot authorize OAuth2 access token.", e);
+            return null;
+        }
+    }
+
+    private void cancel() {
+        if (refresh != null) {
+            refresh.cancel(false);
+            refresh = null;
+        }
+    }
+
+    /**
+     * Schedule the background refresh of the given credential, unless one is pending.
+     * Called with the lock held.
+     *
+     * @param current the credential just handed out or refreshed
+     */
+    private void schedule(Credential current) {
+        final Long expiration = current.getExpirationTimeMilliseconds();
+        if (expiration == null || (refresh != null && refresh.isDone() == false)) {
+            return; // no expiry known, or already scheduled
+        }
+        final long delay = Math.max(expiration - REFRESH_MARGIN - clock.currentTimeMillis(), MIN_REFRESH_DELAY);
+        refresh = scheduler.schedule(new Runnable() {
+            public void run() {
+                synchronized (OAuth2CredentialProvider.this) {
+                    refresh = null;
+                    final Credential refreshed = refresh();
+                    if (refreshed != null) {
+                        schedule(refreshed);
+                    } else {
+                        // no retries in the background, the next getAccessToken tries again and reports it
+                        log.warning("Stopped refreshing OAuth2 access token in the background.");
+                    }
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -29,5 +29,6 @@ package org.jboss.arquillian.container.appengine.tools;
 public enum Status {
     OK,
     ERROR,
-    CANCEL
+    CANCEL,
+    TIMEOUT
 }
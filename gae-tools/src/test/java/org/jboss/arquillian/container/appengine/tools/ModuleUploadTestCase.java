@@ -0,0 +1,211 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.tools;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+import com.google.appengine.tools.admin.AppAdmin;
+import com.google.appengine.tools.admin.Application;
+import com.google.appengine.tools.admin.GenericApplication;
+import com.google.appengine.tools.admin.UpdateFailureEvent;
+import com.google.appengine.tools.admin.UpdateListener;
+import com.google.appengine.tools.admin.UpdateProgressEvent;
+import com.google.appengine.tools.admin.UpdateSuccessEvent;
+import org.jboss.arquillian.container.spi.client.container.DeploymentException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the concurrent module uploads, with a fake AppAdmin per module.
+ */
+public class ModuleUploadTestCase {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AppEngineToolsConfiguration configuration;
+    private FakeUploadContainer container;
+    private File telemetry;
+
+    @Before
+    public void setUp() throws Exception {
+        telemetry = File.createTempFile("telemetry", ".json");
+        configuration = new AppEngineToolsConfiguration();
+        configuration.setSdkDir(System.getProperty("java.io.tmpdir"));
+        configuration.setUserId("user");
+        configuration.setPassword("password");
+        configuration.setSkipUnchanged(false);
+        configuration.setUploadManifestDir(null);
+        configuration.setTelemetryFile(telemetry.getAbsolutePath());
+        configuration.setStartupTimeout(5000);
+        container = new FakeUploadContainer();
+        container.setup(configuration);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        container.stop();
+        telemetry.delete();
+    }
+
+    @Test
+    public void testNoModules() throws Exception {
+        configuration.setUploadConcurrency(0);
+        container.handleApps(Collections.<String, Application>emptyMap());
+        Assert.assertTrue(container.updated.isEmpty());
+    }
+
+    @Test
+    public void testConcurrencyBelowOne() throws Exception {
+        configuration.setUploadConcurrency(0);
+        container.handleApps(apps("ok1", "ok2"));
+        Assert.assertEquals(2, container.updated.size());
+    }
+
+    @Test
+    public void testAllUploaded() throws Exception {
+        configuration.setUploadConcurrency(2);
+        container.handleApps(apps("ok1", "ok2", "ok3"));
+        Assert.assertEquals(3, container.updated.size());
+        Assert.assertEquals(3, count("\"status\":\"OK\""));
+    }
+
+    @Test
+    public void testStatusPerModule() throws Exception {
+        configuration.setUploadConcurrency(2);
+        try {
+            container.handleApps(apps("ok", "fail", "silent", "throw"));
+            Assert.fail("Expected DeploymentException");
+        } catch (DeploymentException e) {
+            final String message = e.getMessage();
+            Assert.assertFalse(message, message.contains("ok="));
+            Assert.assertTrue(message, message.contains("fail=ERROR"));
+            Assert.assertTrue(message, message.contains("silent=CANCEL"));
+            Assert.assertTrue(message, message.contains("throw=ERROR"));
+            Assert.assertEquals(1, e.getSuppressed().length);
+        }
+        Assert.assertEquals(1, count("\"module\":\"ok\".*\"status\":\"OK\""));
+        Assert.assertEquals(1, count("\"module\":\"fail\".*\"status\":\"ERROR\""));
+        Assert.assertEquals(1, count("\"module\":\"silent\".*\"status\":\"CANCEL\""));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        configuration.setUploadConcurrency(1);
+        configuration.setStartupTimeout(200);
+        final ExecutorService pool = container.getExecutor();
+        try {
+            container.handleApps(apps("hang", "queued"));
+            Assert.fail("Expected DeploymentException");
+        } catch (DeploymentException e) {
+            final String message = e.getMessage();
+            Assert.assertTrue(message, message.contains("hang=TIMEOUT"));
+            Assert.assertTrue(message, message.contains("queued=TIMEOUT"));
+            Assert.assertTrue(message, message.contains("new upload pool"));
+        }
+        Assert.assertEquals(1, count("\"module\":\"hang\".*\"status\":\"TIMEOUT\""));
+        Assert.assertFalse(container.updated.contains("queued")); // cancelled before it started
+        Assert.assertNotSame(pool, container.getExecutor()); // the hanging upload still holds the old one
+
+        configuration.setStartupTimeout(5000);
+        container.handleApps(apps("ok"));
+        Assert.assertTrue(container.updated.contains("ok"));
+    }
+
+    private static Map<String, Application> apps(String... modules) {
+        final Map<String, Application> apps = new LinkedHashMap<String, Application>();
+        for (String module : modules) {
+            apps.put(module, null); // only the fake AppAdmin looks at it
+        }
+        return apps;
+    }
+
+    private int count(String regexp) throws Exception {
+        int count = 0;
+        final List<String> lines = Files.readAllLines(telemetry.toPath(), Charset.forName("UTF-8"));
+        for (String line : lines) {
+            if (line.matches(".*" + regexp + ".*")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private class FakeUploadContainer extends AppEngineToolsContainer {
+        private final List<String> updated = Collections.synchronizedList(new ArrayList<String>());
+        private String current;
+
+        @Override
+        protected boolean isLive(String module, Application app) {
+            current = module; // isLive runs right before createAppAdmin, on the deploying thread
+            return false;
+        }
+
+        @Override
+        AppAdmin createAppAdmin(GenericApplication app) {
+            final String name = current;
+            return (AppAdmin) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{AppAdmin.class}, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if ("update".equals(method.getName())) {
+                        update(name, (UpdateListener) args[0]);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        private void update(String name, UpdateListener listener) throws Exception {
+            updated.add(name);
+            listener.onProgress(new UpdateProgressEvent(Thread.currentThread(), "Scanning files on local disk.", 10));
+            if (name.startsWith("ok")) {
+                listener.onSuccess(new UpdateSuccessEvent(""));
+            } else if (name.equals("fail")) {
+                listener.onFailure(new UpdateFailureEvent(null, "failed", null));
+            } else if (name.equals("throw")) {
+                throw new IllegalStateException("broken");
+            } else if (name.equals("hang")) {
+                // like AppAdmin.update, ignore interrupts
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }
+            // "silent" returns without telling the listener
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.tools;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.appengine.repackaged.com.google.api.client.auth.oauth2.BearerToken;
+import com.google.appengine.repackaged.com.google.api.client.auth.oauth2.Credential;
+import com.google.appengine.repackaged.com.google.api.client.auth.oauth2.TokenResponse;
+import com.google.appengine.repackaged.com.google.api.client.util.Clock;
+import org.jboss.arquillian.container.spi.ConfigurationException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link OAuth2CredentialProvider}, with a fake clock, credential source and scheduler.
+ */
+public class OAuth2CredentialProviderTestCase {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final AtomicLong now = new AtomicLong(1000000L);
+    private final Clock clock = new Clock() {
+        public long currentTimeMillis() {
+            return now.get();
+        }
+    };
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final Source source = new Source();
+    private final OAuth2CredentialProvider provider = new OAuth2CredentialProvider(source, clock, scheduler);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testTokenIsCached() throws Exception {
+        source.add(new FakeCredential("t1", HOUR, "t2"));
+        Assert.assertEquals("t1", provider.getAccessToken());
+        Assert.assertEquals("t1", provider.getAccessToken());
+        Assert.assertEquals(1, source.authorized);
+        Assert.assertEquals(Collections.singletonList(HOUR - OAuth2CredentialProvider.REFRESH_MARGIN), scheduler.delays);
+    }
+
+    @Test
+    public void testMinRefreshDelay() throws Exception {
+        source.add(new FakeCredential("t1", TimeUnit.MINUTES.toMillis(2), "t2"));
+        provider.getAccessToken();
+        Assert.assertEquals(Collections.singletonList(OAuth2CredentialProvider.MIN_REFRESH_DELAY), scheduler.delays);
+    }
+
+    @Test
+    public void testBackgroundRefresh() throws Exception {
+        source.add(new FakeCredential("t1", HOUR, "t2"));
+        provider.getAccessToken();
+
+        now.addAndGet(HOUR - OAuth2CredentialProvider.REFRESH_MARGIN);
+        scheduler.runLast();
+        Assert.assertEquals("t2", provider.getAccessToken());
+        Assert.assertEquals(2, scheduler.delays.size());
+        Assert.assertEquals(HOUR - OAuth2CredentialProvider.REFRESH_MARGIN, scheduler.delays.get(1).longValue());
+        Assert.assertEquals(1, source.authorized);
+    }
+
+    @Test
+    public void testExpiryMargin() throws Exception {
+        source.add(new FakeCredential("t1", HOUR, "t2"));
+        provider.getAccessToken();
+
+        // the background refresh didn't run, the token is refreshed before it's handed out
+        now.addAndGet(HOUR - OAuth2CredentialProvider.EXPIRY_MARGIN);
+        Assert.assertEquals("t2", provider.getAccessToken());
+    }
+
+    @Test
+    public void testFailedRefreshAuthorizesAgain() throws Exception {
+        source.add(new FakeCredential("t1", HOUR, null));
+        source.add(new FakeCredential("t3", HOUR, null));
+        provider.getAccessToken();
+
+        now.addAndGet(HOUR - OAuth2CredentialProvider.REFRESH_MARGIN);
+        scheduler.runLast();
+        Assert.assertEquals("t3", provider.getAccessToken());
+        Assert.assertEquals(2, source.authorized);
+    }
+
+    @Test
+    public void testFailedBackgroundRefresh() throws Exception {
+        source.add(new FakeCredential("t1", HOUR, null));
+        provider.getAccessToken();
+
+        now.addAndGet(HOUR - OAuth2CredentialProvider.REFRESH_MARGIN);
+        scheduler.runLast();
+        Assert.assertEquals(1, scheduler.delays.size()); // no retries in the background
+
+        // still valid, the next call schedules a new refresh
+        Assert.assertEquals("t1", provider.getAccessToken());
+        Assert.assertEquals(2, scheduler.delays.size());
+        Assert.assertEquals(OAuth2CredentialProvider.MIN_REFRESH_DELAY, scheduler.delays.get(1).longValue());
+    }
+
+    @Test
+    public void testExpiredTokenIsNeverReturned() throws Exception {
+        source.add(new FakeCredential("t1", HOUR, null));
+        provider.getAccessToken();
+
+        now.addAndGet(HOUR);
+        try {
+            provider.getAccessToken();
+            Assert.fail("Expected ConfigurationException");
+        } catch (ConfigurationException expected) {
+        }
+        Assert.assertTrue(scheduler.futures.get(0).isCancelled());
+
+        // authorized again on the next call
+        source.add(new FakeCredential("t4", HOUR, null));
+        Assert.assertEquals("t4", provider.getAccessToken());
+    }
+
+    /**
+     * Hands out queued credentials, fails when there are none.
+     */
+    private static class Source implements OAuth2CredentialProvider.CredentialSource {
+        private final List<Credential> credentials = new ArrayList<Credential>();
+        private int authorized;
+
+        private void add(Credential credential) {
+            credentials.add(credential);
+        }
+
+        public Credential authorize() {
+            if (credentials.isEmpty()) {
+                throw new ConfigurationException("No tokens");
+            }
+            authorized++;
+            return credentials.remove(0);
+        }
+    }
+
+    /**
+     * Records the scheduled refreshes, which only run when the test says so.
+     */
+    private static class ManualScheduler extends ScheduledThreadPoolExecutor {
+        private final List<Long> delays = new ArrayList<Long>();
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+        private final List<ScheduledFuture<?>> futures = new ArrayList<ScheduledFuture<?>>();
+
+        private ManualScheduler() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            delays.add(unit.toMillis(delay));
+            tasks.add(command);
+            final ScheduledFuture<?> future = super.schedule(new Runnable() {
+                public void run() {
+                }
+            }, 1, TimeUnit.DAYS);
+            futures.add(future);
+            return future;
+        }
+
+        private void runLast() {
+            tasks.get(tasks.size() - 1).run();
+        }
+    }
+
+    private class FakeCredential extends Credential {
+        private final String next;
+
+        /**
+         * @param token     the access token
+         * @param expiresIn millis until the token expires
+         * @param next      the refreshed access token, null if the refresh fails
+         */
+        private FakeCredential(String token, long expiresIn, String next) {
+            super(new Credential.Builder(BearerToken.authorizationHeaderAccessMethod()).setClock(clock));
+            this.next = next;
+            setAccessToken(token);
+            setExpirationTimeMilliseconds(clock.currentTimeMillis() + expiresIn);
+        }
+
+        @Override
+        protected TokenResponse executeRefreshToken() throws IOException {
+            if (next == null) {
+                throw new IOException("Refresh failed");
+            }
+            return new TokenResponse().setAccessToken(next).setExpiresInSeconds(TimeUnit.MILLISECONDS.toSeconds(HOUR));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.container.appengine.tools;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the shared EAR libraries written by {@link AppEngineToolsContainer#rearrangeEar(EnterpriseArchive)}.
+ */
+public class SharedLibraryTestCase {
+    private File temp;
+    private TempRootContainer container;
+
+    @Before
+    public void setUp() throws Exception {
+        temp = Files.createTempDirectory("shared-lib").toFile();
+        final AppEngineToolsConfiguration configuration = new AppEngineToolsConfiguration();
+        configuration.setSdkDir(temp.getAbsolutePath());
+        configuration.setUserId("user");
+        configuration.setPassword("password");
+        container = new TempRootContainer(temp);
+        container.setup(configuration);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TempRootContainer.delete(temp);
+    }
+
+    @Test
+    public void testUnchangedLibraryIsKept() throws Exception {
+        final File root = container.rearrangeEar(ear("a"));
+        final File jar = new File(root, ".ear-lib/lib.jar");
+        final Object key = fileKey(jar);
+
+        Assert.assertEquals(key, fileKey(new File(container.rearrangeEar(ear("a")), ".ear-lib/lib.jar")));
+    }
+
+    @Test
+    public void testChangedLibraryIsReplaced() throws Exception {
+        final File root = container.rearrangeEar(ear("a"));
+        final File jar = new File(root, ".ear-lib/lib.jar");
+        final long length = jar.length();
+        final Object key = fileKey(jar);
+
+        container.rearrangeEar(ear("changed content"));
+        Assert.assertFalse(key.equals(fileKey(jar)));
+        Assert.assertFalse(length == jar.length());
+    }
+
+    @Test
+    public void testRemovedLibraryIsDeleted() throws Exception {
+        final File root = container.rearrangeEar(ear("a"));
+        Assert.assertTrue(new File(root, ".ear-lib/lib.jar").isFile());
+
+        final JavaArchive other = ShrinkWrap.create(JavaArchive.class, "other.jar").addAsResource(new StringAsset("b"), "content.txt");
+        container.rearrangeEar(ShrinkWrap.create(EnterpriseArchive.class, "shared.ear").addAsLibrary(other));
+        Assert.assertFalse(new File(root, ".ear-lib/lib.jar").exists());
+        Assert.assertTrue(new File(root, ".ear-lib/other.jar").isFile());
+    }
+
+    private static EnterpriseArchive ear(String content) {
+        final JavaArchive lib = ShrinkWrap.create(JavaArchive.class, "lib.jar").addAsResource(new StringAsset(content), "content.txt");
+        return ShrinkWrap.create(EnterpriseArchive.class, "shared.ear").addAsLibrary(lib);
+    }
+
+    private static Object fileKey(File file) throws Exception {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    private static class TempRootContainer extends AppEngineToolsContainer {
+        private final File temp;
+
+        private TempRootContainer(File temp) {
+            this.temp = temp;
+        }
+
+        @Override
+        protected File getTempRoot() {
+            return temp;
+        }
+
+        private static void delete(File file) throws Exception {
+            deleteRecursively(file);
+        }
+    }
+}
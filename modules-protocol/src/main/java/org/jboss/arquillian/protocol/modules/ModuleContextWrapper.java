@@ -27,8 +27,6 @@ package org.jboss.arquillian.protocol.modules;
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 class ModuleContextWrapper implements ModuleContext {
-    private static final String DOT = "-dot-";
-
     private ModuleContext context;
     private OperateOnModule oom;
 
@@ -46,22 +44,7 @@ class ModuleContextWrapper implements ModuleContext {
             return context.getHost();
         }
 
-        StringBuilder host = new StringBuilder();
-        int instance = oom.instance();
-        if (instance > 0) {
-            host.append(instance).append(DOT);
-        }
-        String version = oom.version();
-        if (version != null && version.trim().length() > 0) {
-            host.append(version).append(DOT);
-        }
-        String module = getModule();
-        if (module != null) {
-            host.append(module).append(DOT);
-        }
-        host.append(context.getHost());
-
-        return host.toString();
+        return ModuleHosts.host(context.getHost(), getModule(), oom.version(), oom.instance());
     }
 
     public int getPort() {
@@ -0,0 +1,59 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.protocol.modules;
+
+/**
+ * Builds GAE hosts for a module, version and instance,
+ * e.g. 2-dot-v1-dot-backend-dot-myapp.appspot.com.
+ */
+public final class ModuleHosts {
+    public static final String DOT = "-dot-";
+
+    private ModuleHosts() {
+    }
+
+    /**
+     * Build the host.
+     *
+     * @param host     the application host
+     * @param module   the module, can be null
+     * @param version  the version, can be null or blank
+     * @param instance the instance, ignored if not positive
+     * @return the host
+     */
+    public static String host(String host, String module, String version, int instance) {
+        StringBuilder builder = new StringBuilder();
+        if (instance > 0) {
+            builder.append(instance).append(DOT);
+        }
+        if (version != null && version.trim().length() > 0) {
+            builder.append(version).append(DOT);
+        }
+        if (module != null) {
+            builder.append(module).append(DOT);
+        }
+        builder.append(host);
+        return builder.toString();
+    }
+}